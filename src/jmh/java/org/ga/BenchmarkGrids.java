@@ -0,0 +1,94 @@
+package org.ga;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Grids used by the benchmarks. Every shape of a given size has the same number of cells,
+ * and random grids use a fixed seed so runs are comparable.
+ */
+public final class BenchmarkGrids {
+
+    private BenchmarkGrids() {
+    }
+
+    /**
+     * Proportions of the grid, taken from the tall and long cases in the tests
+     */
+    public enum Shape {
+        /** size x size */
+        SQUARE,
+        /** 4 * size rows of size / 4 */
+        TALL,
+        /** size / 4 rows of 4 * size */
+        LONG;
+
+        int rows(int size) {
+            return switch (this) {
+                case SQUARE -> size;
+                case TALL -> size * 4;
+                case LONG -> Math.max(1, size / 4);
+            };
+        }
+
+        int cols(int size) {
+            return switch (this) {
+                case SQUARE -> size;
+                case TALL -> Math.max(1, size / 4);
+                case LONG -> size * 4;
+            };
+        }
+    }
+
+    /**
+     * Where the positive cells are
+     */
+    public enum Density {
+        /** A single positive in the middle of the grid */
+        SINGLE,
+        /** About 1 in 1000 cells, uniformly at random */
+        SPARSE,
+        /** 32x32 blocks of positives around a few random centers */
+        CLUSTERED,
+        /** Every cell is positive */
+        ALL
+    }
+
+    static int[][] create(int size, Shape shape, Density density) {
+        int rows = shape.rows(size);
+        int cols = shape.cols(size);
+        int[][] grid = new int[rows][cols];
+        Random random = new Random(20240601L);
+
+        switch (density) {
+            case SINGLE -> grid[rows / 2][cols / 2] = 1;
+            case SPARSE -> {
+                long positives = Math.max(1, (long) rows * cols / 1000);
+                for (long i = 0; i < positives; i++) grid[random.nextInt(rows)][random.nextInt(cols)] = 1 + random.nextInt(9);
+            }
+            case CLUSTERED -> {
+                for (int cluster = 0; cluster < 16; cluster++) {
+                    int centerY = random.nextInt(rows);
+                    int centerX = random.nextInt(cols);
+                    for (int y = Math.max(0, centerY - 16); y < Math.min(rows, centerY + 16); y++) {
+                        for (int x = Math.max(0, centerX - 16); x < Math.min(cols, centerX + 16); x++) grid[y][x] = 1;
+                    }
+                }
+            }
+            case ALL -> {
+                for (int[] row : grid) Arrays.fill(row, 1);
+            }
+        }
+
+        // Sprinkle negatives so parsing sees signed values
+        for (int i = 0; i < rows; i++) grid[i][random.nextInt(cols)] = -1 - random.nextInt(9);
+        return grid;
+    }
+
+    /**
+     * Resolves a distance parameter: a number, or "cover" for a distance that covers the whole grid
+     */
+    static int distance(String parameter, int[][] grid) {
+        return parameter.equals("cover") ? grid.length + grid[0].length : Integer.parseInt(parameter);
+    }
+}
@@ -0,0 +1,63 @@
+package org.ga;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times findTotalCellCountWithinRange for each engine across grid size, shape, density of
+ * positives and distance. Narrow the sweep with -p, e.g. -p size=1000 -p engine=FRONTIER_BFS,
+ * as the legacy engine on the largest grids takes minutes per call. Parallel counting is timed
+ * by ParallelCountingBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class CountingBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    int size;
+
+    @Param({"SQUARE", "TALL", "LONG"})
+    BenchmarkGrids.Shape shape;
+
+    @Param({"SINGLE", "SPARSE", "CLUSTERED", "ALL"})
+    BenchmarkGrids.Density density;
+
+    @Param({"0", "16", "cover"})
+    String distance;
+
+    @Param({"LEGACY_BFS", "FRONTIER_BFS", "DIAMOND_UNION", "DISTANCE_TRANSFORM", "BITSET_DILATION", "SEGMENTED_BFS"})
+    CountingEngine engine;
+
+    int[][] grid;
+    PositiveMask mask;
+    int n;
+
+    @Setup(Level.Trial)
+    public void createGrid() {
+        grid = BenchmarkGrids.create(size, shape, density);
+        mask = PositiveMask.of(grid);
+        n = BenchmarkGrids.distance(distance, grid);
+    }
+
+    /**
+     * The full int[][] entry point, including building the positive mask
+     */
+    @Benchmark
+    public int countGrid() {
+        return GridCellNeighbors.findTotalCellCountWithinRange(grid, n, engine);
+    }
+
+    /**
+     * Counting alone, from an already built positive mask
+     */
+    @Benchmark
+    public int countMask() {
+        return GridCellNeighbors.findTotalCellCountWithinRange(mask, n, engine);
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.ga;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times reading a csv grid the ways main does: the memory mapped parser used for the
+ * dense path, sequential and in parallel chunks, and the line by line parser used by
+ * --streaming and --convert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class CsvParsingBenchmark {
+
+    @Param({"1000", "5000"})
+    int size;
+
+    @Param({"SPARSE", "ALL"})
+    BenchmarkGrids.Density density;
+
+    Path csv;
+
+    @Setup(Level.Trial)
+    public void writeCsv() throws IOException {
+        int[][] grid = BenchmarkGrids.create(size, BenchmarkGrids.Shape.SQUARE, density);
+        csv = Files.createTempFile("benchmark-grid", ".csv");
+        try (var writer = Files.newBufferedWriter(csv)) {
+            for (int[] row : grid) {
+                StringJoiner line = new StringJoiner(", ");
+                for (int value : row) line.add(String.valueOf(value));
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsv() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public int[][] mappedSequential() throws IOException {
+        return MappedCsvParser.parse(csv, 1);
+    }
+
+    @Benchmark
+    public int[][] mappedParallel() throws IOException {
+        return MappedCsvParser.parse(csv);
+    }
+
+    @Benchmark
+    public List<int[]> lineByLine() throws IOException {
+        List<int[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int[] row = CsvRowParser.parseRow(line);
+                if (row.length > 0) rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
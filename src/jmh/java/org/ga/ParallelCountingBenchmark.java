@@ -0,0 +1,50 @@
+package org.ga;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times findTotalCellCountWithinRangeInParallel over the same sweep as CountingBenchmark, for
+ * the engines that count row bands. legacy_bfs has no row bands, so it isn't a parameter here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class ParallelCountingBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    int size;
+
+    @Param({"SQUARE", "TALL", "LONG"})
+    BenchmarkGrids.Shape shape;
+
+    @Param({"SINGLE", "SPARSE", "CLUSTERED", "ALL"})
+    BenchmarkGrids.Density density;
+
+    @Param({"0", "16", "cover"})
+    String distance;
+
+    @Param({"FRONTIER_BFS", "DIAMOND_UNION", "DISTANCE_TRANSFORM", "BITSET_DILATION", "SEGMENTED_BFS"})
+    CountingEngine engine;
+
+    PositiveMask mask;
+    int n;
+
+    @Setup(Level.Trial)
+    public void createGrid() {
+        if (!engine.supportsRowBands()) throw new IllegalStateException(engine + " has no row bands to count in parallel");
+        int[][] grid = BenchmarkGrids.create(size, shape, density);
+        mask = PositiveMask.of(grid);
+        n = BenchmarkGrids.distance(distance, grid);
+    }
+
+    @Benchmark
+    public int countMaskInParallel() {
+        return GridCellNeighbors.findTotalCellCountWithinRangeInParallel(mask, n, engine, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,204 @@
+package org.ga;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Counts many grid files in one JVM. Reader threads load grids and hand them to a pool of
+ * counting threads. At most 'inFlight' grids are held in memory at once: readers wait for a
+ * permit before loading, and a permit is only returned once the grid has been counted, so
+ * fast readers can't run ahead of the counting pool. Each file is loaded once, however many
+ * distances it's counted for, and all of its distances come from a single pass.
+ *
+ * Results are written to one tab separated file, a line per grid and distance in the order the
+ * jobs were given:
+ *
+ * path  distance  count
+ *
+ * A grid that can't be loaded or counted gets one line with "error" and the message in place
+ * of the distance and count, and the rest of the batch carries on.
+ */
+final class BatchCounter {
+
+    /**
+     * A grid file and the distances to count it for
+     */
+    record Job(Path grid, int[] distances) {
+    }
+
+    /**
+     * @param failed jobs written as an error line
+     */
+    record Summary(int grids, int failed, long lines) {
+    }
+
+    private record Result(Job job, long[] counts, String error) {
+    }
+
+    private final int readers;
+    private final int threads;
+    private final int inFlight;
+    private final CountingEngine engine;
+
+    /**
+     * @param readers threads loading grids
+     * @param threads threads counting grids
+     * @param engine strategy used to count each distance, or null to count every distance of a grid from one distance histogram
+     */
+    BatchCounter(int readers, int threads, CountingEngine engine) {
+        if (readers < 1) throw new IllegalArgumentException("Expected --readers to be at least 1 but found " + readers);
+        if (threads < 1) throw new IllegalArgumentException("Expected --threads to be at least 1 but found " + threads);
+        this.readers = readers;
+        this.threads = threads;
+        this.inFlight = readers + threads;
+        this.engine = engine;
+    }
+
+    /**
+     * Lists every csv and binary grid directly in a directory, by name
+     */
+    static List<Job> fromDirectory(Path directory, int[] distances) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".csv") || file.toString().endsWith(BinaryGridFormat.EXTENSION))
+                    .sorted()
+                    .map(file -> new Job(file, distances))
+                    .toList();
+        }
+    }
+
+    /**
+     * Reads a manifest with one "path,N" pair per line. Paths are relative to the manifest's directory,
+     * blank lines and lines starting with # are skipped. Pairs naming the same file become one job
+     *
+     * @throws IllegalArgumentException if a line isn't a path and a non-negative integer
+     */
+    static List<Job> readManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        Map<Path, List<Integer>> distancesByGrid = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int comma = line.lastIndexOf(',');
+            if (comma <= 0) throw new IllegalArgumentException("Expected path,N on line " + (i + 1) + " of " + manifest + " but found " + line);
+            int n;
+            try {
+                n = Integer.parseInt(line.substring(comma + 1).trim());
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Expected an integer distance on line " + (i + 1) + " of " + manifest + " but found " + line.substring(comma + 1).trim());
+            }
+            if (n < 0) throw new IllegalArgumentException("Distance on line " + (i + 1) + " of " + manifest + " cannot be negative");
+
+            Path grid = base.resolve(line.substring(0, comma).trim()).normalize();
+            List<Integer> distances = distancesByGrid.computeIfAbsent(grid, key -> new ArrayList<>());
+            if (!distances.contains(n)) distances.add(n);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        distancesByGrid.forEach((grid, distances) -> jobs.add(new Job(grid, distances.stream().mapToInt(Integer::intValue).toArray())));
+        return jobs;
+    }
+
+    /**
+     * Loads and counts every job, writing the results to out as they're ready
+     *
+     * @param out tab separated file to create or replace
+     */
+    Summary run(List<Job> jobs, Path out) throws IOException {
+        ExecutorService readerPool = Executors.newFixedThreadPool(readers);
+        ExecutorService countPool = Executors.newFixedThreadPool(threads);
+        Semaphore permits = new Semaphore(inFlight);
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            List<CompletableFuture<Result>> results = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                CompletableFuture<PositiveMask> loaded = CompletableFuture.supplyAsync(() -> load(job.grid(), permits), readerPool);
+                results.add(loaded
+                        .thenApplyAsync(mask -> new Result(job, count(mask, job.distances()), null), countPool)
+                        .whenComplete((result, failure) -> {
+                            // A grid failing before its permit was taken has nothing to return
+                            if (!(failure instanceof CompletionException ce && ce.getCause() instanceof PermitNotTaken)) permits.release();
+                        })
+                        .exceptionally(failure -> new Result(job, null, messageOf(failure))));
+            }
+
+            int failed = 0;
+            long lines = 0;
+            for (CompletableFuture<Result> future : results) {
+                Result result = future.join();
+                if (result.error() != null) {
+                    failed++;
+                    lines++;
+                    writer.write(result.job().grid() + "\terror\t" + result.error());
+                    writer.newLine();
+                    continue;
+                }
+                for (int i = 0; i < result.counts().length; i++) {
+                    writer.write(result.job().grid() + "\t" + result.job().distances()[i] + "\t" + result.counts()[i]);
+                    writer.newLine();
+                    lines++;
+                }
+            }
+            return new Summary(jobs.size(), failed, lines);
+        } finally {
+            readerPool.shutdownNow();
+            countPool.shutdownNow();
+        }
+    }
+
+    private static PositiveMask load(Path grid, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new PermitNotTaken();
+        }
+
+        try {
+            return PositiveMask.read(grid);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private long[] count(PositiveMask mask, int[] distances) {
+        if (engine == null) return DistanceHistogram.of(mask).countsWithin(distances);
+        return IntStream.of(distances).mapToLong(n -> engine.countCells(mask, n)).toArray();
+    }
+
+    private static String messageOf(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof UncheckedIOException uioe) cause = uioe.getCause();
+        if (cause instanceof NoSuchFileException nsfe) return nsfe.getFile() + " (No such file or directory)";
+        if (cause instanceof NumberFormatException nfe) return "Expected csv with only numbers separated by commas but failed to parse: " + nfe.getMessage();
+        return String.valueOf(cause.getMessage()).replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * Interrupted while waiting for room to load a grid
+     */
+    private static final class PermitNotTaken extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        PermitNotTaken() {
+            super("Interrupted before the grid was loaded");
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package org.ga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary grid files, so a grid queried again and again doesn't have to be re-parsed
+ * from csv each time. A 16 byte header is followed by the cells in row-major order:
+ *
+ * bytes 0-3   magic "GCNB"
+ * byte  4     format version, currently 1
+ * byte  5     encoding, 0 for INT32 and 1 for POSITIVE_MASK
+ * bytes 6-7   reserved, 0
+ * bytes 8-11  rows
+ * bytes 12-15 cols
+ *
+ * INT32 stores every value as a 4 byte int. POSITIVE_MASK stores only which cells are
+ * positive, each row as ceil(cols / 64) 8 byte words with bit x of the row in bit x % 64 of
+ * word x / 64, which is 32 times smaller and loads straight into a PositiveMask. All numbers
+ * are little-endian. Files are read through memory mapping.
+ */
+public final class BinaryGridFormat {
+
+    /**
+     * File extension the command line uses to recognize binary grids
+     */
+    public static final String EXTENSION = ".gcnb";
+
+    static final int HEADER_BYTES = 16;
+    private static final byte[] MAGIC = {'G', 'C', 'N', 'B'};
+    private static final byte VERSION = 1;
+
+    /**
+     * How cells are stored after the header
+     */
+    public enum Encoding {
+        /** Every value as a 4 byte int */
+        INT32,
+        /** One bit per cell, set for positive cells */
+        POSITIVE_MASK
+    }
+
+    private BinaryGridFormat() {
+    }
+
+    /**
+     * Writes a grid to a binary file
+     *
+     * @param grid rectangular, non-empty 2D grid of signed integers
+     * @param out path of the file to create or replace, left untouched if writing fails
+     * @param encoding how to store the cells
+     */
+    public static void write(int[][] grid, Path out, Encoding encoding) throws IOException {
+        try (GridWriter writer = new GridWriter(out, encoding)) {
+            for (int[] row : grid) writer.writeRow(row);
+            writer.commit();
+        }
+    }
+
+    /**
+     * Converts a csv grid to a binary file one row at a time, without holding the grid in memory.
+     * The csv is parsed and validated the same way as GridCellNeighbors.main
+     *
+     * @param csv path to a csv grid
+     * @param out path of the file to create or replace, left untouched if the csv can't be converted
+     * @param encoding how to store the cells
+     * @throws NumberFormatException if a csv value isn't an integer
+     */
+    public static void convertCsv(Path csv, Path out, Encoding encoding) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv);
+             GridWriter writer = new GridWriter(out, encoding)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int[] row = CsvRowParser.parseRow(line);
+                if (row.length > 0) writer.writeRow(row); // Only add rows that have non-blank values
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * @return the encoding of the cells in a binary grid file
+     */
+    public static Encoding readEncoding(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Header.read(channel, path).encoding;
+        }
+    }
+
+    /**
+     * Loads the values of an INT32 binary grid
+     *
+     * @return the grid
+     * @throws IllegalArgumentException if the file isn't a binary grid or only stores a positive mask
+     */
+    public static int[][] readGrid(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, path);
+            if (header.encoding != Encoding.INT32) {
+                throw new IllegalArgumentException("Binary grid " + path + " only stores a positive mask, not cell values");
+            }
+
+            int[][] grid = new int[header.rows][];
+            long rowBytes = (long) header.cols * Integer.BYTES;
+            forEachRow(channel, header.rows, rowBytes, (y, buffer) -> {
+                grid[y] = new int[header.cols];
+                buffer.asIntBuffer().get(grid[y]);
+            });
+            return grid;
+        }
+    }
+
+    /**
+     * Maps the values of an INT32 binary grid straight into an OffHeapGrid without copying them,
+     * so the operating system pages cells in as they're read and the heap holds none of them.
+     * The grid is read only and stays valid after the file is closed
+     *
+     * @return the grid, backed by the file
+     * @throws IllegalArgumentException if the file isn't a binary grid or only stores a positive mask
+     */
+    public static OffHeapGrid mapGrid(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, path);
+            if (header.encoding != Encoding.INT32) {
+                throw new IllegalArgumentException("Binary grid " + path + " only stores a positive mask, not cell values");
+            }
+            long rowBytes = (long) header.cols * Integer.BYTES;
+            long expectedSize = HEADER_BYTES + header.rows * rowBytes;
+            if (channel.size() < expectedSize) {
+                throw new IllegalArgumentException("Binary grid is truncated, expected " + expectedSize + " bytes but found " + channel.size());
+            }
+
+            int rowsPerSegment = OffHeapGrid.rowsPerSegment(header.rows, header.cols);
+            ByteBuffer[] segments = new ByteBuffer[(header.rows + rowsPerSegment - 1) / rowsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                long firstRow = (long) i * rowsPerSegment;
+                long segmentRows = Math.min(rowsPerSegment, header.rows - firstRow);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + firstRow * rowBytes, segmentRows * rowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new OffHeapGrid(header.rows, header.cols, rowsPerSegment, segments);
+        }
+    }
+
+    /**
+     * Loads the positive cells of a binary grid of either encoding. A POSITIVE_MASK file is
+     * copied straight into the mask a mapped region at a time
+     *
+     * @return the positive cells of the grid
+     * @throws IllegalArgumentException if the file isn't a binary grid
+     */
+    public static PositiveMask readMask(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, path);
+            PositiveMask mask = PositiveMask.empty(header.rows, header.cols);
+            long[] words = mask.words();
+            int wordsPerRow = mask.wordsPerRow();
+
+            if (header.encoding == Encoding.POSITIVE_MASK) {
+                // Bits past the last column of a corrupt file would seed positives outside the grid
+                long lastWordMask = BitFrontier.lastWordMask(header.cols);
+                forEachRow(channel, header.rows, (long) wordsPerRow * Long.BYTES, (y, buffer) -> {
+                    buffer.asLongBuffer().get(words, y * wordsPerRow, wordsPerRow);
+                    words[y * wordsPerRow + wordsPerRow - 1] &= lastWordMask;
+                });
+            } else {
+                forEachRow(channel, header.rows, (long) header.cols * Integer.BYTES, (y, buffer) -> {
+                    for (int x = 0; x < header.cols; x++) {
+                        if (buffer.getInt(x * Integer.BYTES) > 0) mask.set(y, x);
+                    }
+                });
+            }
+            if (Metrics.ENABLED) Metrics.add(Metrics.Counter.POSITIVES_FOUND, mask.positiveCount());
+            return mask;
+        }
+    }
+
+    /**
+     * Loads the positive cells of a binary grid of either encoding into off heap memory,
+     * for grids with too many cells for readMask
+     *
+     * @return the positive cells of the grid
+     * @throws IllegalArgumentException if the file isn't a binary grid
+     */
+    public static SegmentedMask readSegmentedMask(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, path);
+            SegmentedMask mask = SegmentedMask.empty(header.rows, header.cols);
+            int wordsPerRow = mask.wordsPerRow();
+
+            if (header.encoding == Encoding.POSITIVE_MASK) {
+                long lastWordMask = BitFrontier.lastWordMask(header.cols);
+                forEachRow(channel, header.rows, (long) wordsPerRow * Long.BYTES, (y, buffer) -> {
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        long word = buffer.getLong(w * Long.BYTES);
+                        mask.setWord(y, w, w == wordsPerRow - 1 ? word & lastWordMask : word);
+                    }
+                });
+            } else {
+                forEachRow(channel, header.rows, (long) header.cols * Integer.BYTES, (y, buffer) -> {
+                    for (int x = 0; x < header.cols; x++) {
+                        if (buffer.getInt(x * Integer.BYTES) > 0) mask.set(y, x);
+                    }
+                });
+            }
+            if (Metrics.ENABLED) Metrics.add(Metrics.Counter.POSITIVES_FOUND, mask.positiveCount());
+            return mask;
+        }
+    }
+
+    /**
+     * Loads only the positive cells of a binary grid of either encoding, a mapped region at
+     * a time, so memory grows with the number of positives rather than with the grid size
+     *
+     * @return the positive cells of the grid
+     * @throws IllegalArgumentException if the file isn't a binary grid
+     */
+    public static SparseGrid readSparse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, path);
+            SparseGrid.Builder builder = SparseGrid.builder(header.rows, header.cols);
+
+            if (header.encoding == Encoding.POSITIVE_MASK) {
+                int wordsPerRow = PositiveMask.wordsPerRow(header.cols);
+                long lastWordMask = BitFrontier.lastWordMask(header.cols);
+                forEachRow(channel, header.rows, (long) wordsPerRow * Long.BYTES, (y, buffer) -> {
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        long bits = buffer.getLong(w * Long.BYTES);
+                        for (long word = w == wordsPerRow - 1 ? bits & lastWordMask : bits; word != 0; word &= word - 1) {
+                            builder.add(y, (w << 6) + Long.numberOfTrailingZeros(word));
+                        }
+                    }
+                });
+            } else {
+                forEachRow(channel, header.rows, (long) header.cols * Integer.BYTES, (y, buffer) -> {
+                    for (int x = 0; x < header.cols; x++) {
+                        if (buffer.getInt(x * Integer.BYTES) > 0) builder.add(y, x);
+                    }
+                });
+            }
+            return builder.build();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        void read(int y, ByteBuffer row);
+    }
+
+    /**
+     * Maps the cells a group of whole rows at a time and hands each row, as a little-endian
+     * buffer positioned at its first byte, to 'reader'
+     */
+    private static void forEachRow(FileChannel channel, int rows, long rowBytes, RowReader reader) throws IOException {
+        long expectedSize = HEADER_BYTES + rows * rowBytes;
+        if (channel.size() < expectedSize) {
+            throw new IllegalArgumentException("Binary grid is truncated, expected " + expectedSize + " bytes but found " + channel.size());
+        }
+        if (rowBytes == 0) return;
+
+        int rowsPerMapping = (int) Math.max(1, Math.min(rows, (1L << 30) / rowBytes));
+        for (int firstRow = 0; firstRow < rows; firstRow += rowsPerMapping) {
+            int mappedRows = Math.min(rowsPerMapping, rows - firstRow);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + firstRow * rowBytes, mappedRows * rowBytes);
+            for (int i = 0; i < mappedRows; i++) {
+                ByteBuffer row = mapped.slice((int) (i * rowBytes), (int) rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+                reader.read(firstRow + i, row);
+            }
+        }
+    }
+
+    /**
+     * The fixed size header at the start of every binary grid
+     */
+    private record Header(Encoding encoding, int rows, int cols) {
+
+        static Header read(FileChannel channel, Path path) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining()) throw new IllegalArgumentException("Expected a binary grid but " + path + " is too short");
+
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) throw new IllegalArgumentException("Expected a binary grid but " + path + " doesn't start with GCNB");
+            }
+            if (header.get(4) != VERSION) throw new IllegalArgumentException("Unsupported binary grid version " + header.get(4) + " in " + path);
+
+            int encoding = header.get(5);
+            if (encoding < 0 || encoding >= Encoding.values().length) {
+                throw new IllegalArgumentException("Unknown binary grid encoding " + encoding + " in " + path);
+            }
+
+            int rows = header.getInt(8);
+            int cols = header.getInt(12);
+            if (rows < 1 || cols < 0) throw new IllegalArgumentException("Expected a grid in " + path + " but found none");
+            if (encoding == Encoding.INT32.ordinal() && cols > Integer.MAX_VALUE / Integer.BYTES) {
+                throw new IllegalArgumentException("Binary grid " + path + " has rows of " + cols + " ints, too wide to map a row at a time");
+            }
+
+            return new Header(Encoding.values()[encoding], rows, cols);
+        }
+
+        ByteBuffer toBytes() {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).put(VERSION).put((byte) encoding.ordinal()).putShort((short) 0).putInt(rows).putInt(cols);
+            return header.flip();
+        }
+    }
+
+    /**
+     * Writes rows as they come through a reusable buffer into a temporary file next to the output.
+     * commit writes the header, which needs the row count, and moves the file over the output, so a
+     * conversion that fails partway never leaves a valid looking but truncated grid behind. Closing
+     * without committing deletes the temporary file
+     */
+    private static final class GridWriter implements AutoCloseable {
+        private final Path out;
+        private final Path temp;
+        private final FileChannel channel;
+        private final Encoding encoding;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private int rows;
+        private int cols = -1;
+        private boolean committed;
+
+        GridWriter(Path out, Encoding encoding) throws IOException {
+            this.out = out;
+            this.temp = out.resolveSibling(out.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.encoding = encoding;
+            channel.position(HEADER_BYTES);
+        }
+
+        void writeRow(int[] row) throws IOException {
+            if (cols < 0) cols = row.length;
+            else if (row.length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+
+            if (encoding == Encoding.INT32) {
+                for (int value : row) {
+                    if (buffer.remaining() < Integer.BYTES) flush();
+                    buffer.putInt(value);
+                }
+            } else {
+                for (int wordStart = 0; wordStart < cols; wordStart += 64) {
+                    long word = 0;
+                    for (int x = wordStart, end = Math.min(cols, wordStart + 64); x < end; x++) {
+                        if (row[x] > 0) word |= 1L << x;
+                    }
+                    if (buffer.remaining() < Long.BYTES) flush();
+                    buffer.putLong(word);
+                }
+            }
+            rows++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes the header and replaces the output with everything written
+         */
+        void commit() throws IOException {
+            if (rows == 0) throw new IllegalArgumentException("Expected a grid in csv but found none");
+
+            flush();
+            ByteBuffer header = new Header(encoding, rows, cols).toBytes();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            channel.close();
+            Files.move(temp, out, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                if (!committed) Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.ga;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first search over bits rather than cells, for grids stored as rows of long words
+ * with bit x of a row in word x >>> 6. Each step dilates the frontier by one cell up, down,
+ * left or right, 64 cells per long operation: a word ORed with itself shifted left and right
+ * (carrying across word boundaries) and with the words above and below it, then masked by the
+ * passable cells not yet visited. Only the rows next to the frontier are touched.
+ *
+ * The loops are plain long arithmetic over arrays, so the JIT is free to unroll and vectorize them.
+ */
+final class BitFrontier {
+
+    private final int rows;
+    private final int wordsPerRow;
+    private final long[] passable;
+    private final long[] visited;
+    private long[] frontier;
+    private long[] next;
+    private int top;    // First row of the frontier, -1 once it's empty
+    private int bottom; // Last row of the frontier
+    private long covered;
+
+    /**
+     * @param seeds cells at distance 0, copied
+     * @param passable cells the search may enter, clear past the last column of each row
+     */
+    BitFrontier(long[] seeds, int rows, int wordsPerRow, long[] passable) {
+        this.rows = rows;
+        this.wordsPerRow = wordsPerRow;
+        this.passable = passable;
+        this.visited = seeds.clone();
+        this.frontier = seeds.clone();
+        this.next = new long[seeds.length];
+
+        top = -1;
+        for (int y = 0; y < rows; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = seeds[y * wordsPerRow + w];
+                if (word == 0) continue;
+                if (top < 0) top = y;
+                bottom = y;
+                covered += Long.bitCount(word);
+            }
+        }
+    }
+
+    /**
+     * @return every cell of the grid set and the bits past the last column clear, the passable cells of a grid without walls
+     */
+    static long[] allPassable(int rows, int cols) {
+        int wordsPerRow = PositiveMask.wordsPerRow(cols);
+        long[] passable = new long[Math.multiplyExact(rows, wordsPerRow)];
+        Arrays.fill(passable, -1L);
+        long lastWordMask = lastWordMask(cols);
+        for (int y = 0; y < rows && wordsPerRow > 0; y++) passable[y * wordsPerRow + wordsPerRow - 1] = lastWordMask;
+        return passable;
+    }
+
+    /**
+     * @return the bits of a row's last word that hold columns
+     */
+    static long lastWordMask(int cols) {
+        return (cols & 63) == 0 ? -1L : (1L << cols) - 1;
+    }
+
+    /**
+     * Grows the visited cells by one step
+     *
+     * @return false if the step reached no new cells, so no later step will either
+     */
+    boolean step() {
+        if (top < 0) return false;
+
+        int nextTop = -1;
+        int nextBottom = -1;
+        for (int y = Math.max(0, top - 1), last = Math.min(rows - 1, bottom + 1); y <= last; y++) {
+            int rowStart = y * wordsPerRow;
+            long reached = 0;
+            for (int w = 0; w < wordsPerRow; w++) {
+                int i = rowStart + w;
+                long word = frontier[i];
+                long grown = word | (word << 1) | (word >>> 1);
+                if (w > 0) grown |= frontier[i - 1] >>> 63;
+                if (w < wordsPerRow - 1) grown |= frontier[i + 1] << 63;
+                if (y > 0) grown |= frontier[i - wordsPerRow];
+                if (y < rows - 1) grown |= frontier[i + wordsPerRow];
+
+                long fresh = grown & passable[i] & ~visited[i];
+                next[i] = fresh;
+                visited[i] |= fresh;
+                covered += Long.bitCount(fresh);
+                reached |= fresh;
+            }
+            if (reached != 0) {
+                if (nextTop < 0) nextTop = y;
+                nextBottom = y;
+            }
+        }
+
+        // The old frontier becomes the next buffer, cleared where it was written
+        Arrays.fill(frontier, top * wordsPerRow, (bottom + 1) * wordsPerRow, 0L);
+        long[] swap = frontier;
+        frontier = next;
+        next = swap;
+        top = nextTop;
+        bottom = nextBottom;
+        return top >= 0;
+    }
+
+    /**
+     * @return cells visited so far, including the seeds
+     */
+    long covered() {
+        return covered;
+    }
+
+    /**
+     * @return cells visited so far in rows [fromRow, toRow)
+     */
+    long coveredRows(int fromRow, int toRow) {
+        return Bits.countRange(visited, (long) fromRow * wordsPerRow * 64, (long) toRow * wordsPerRow * 64);
+    }
+}
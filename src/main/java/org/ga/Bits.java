@@ -0,0 +1,56 @@
+package org.ga;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for bitsets stored as long words, bit i living in word i >>> 6
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    static long[] newBitset(long bitCount) {
+        long words = (bitCount + 63) >>> 6;
+        if (words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Bitset of " + bitCount + " bits is too large");
+        return new long[(int) words];
+    }
+
+    /**
+     * Counts the set bits in [fromBit, toBit)
+     */
+    static long countRange(long[] words, long fromBit, long toBit) {
+        if (fromBit >= toBit) return 0;
+
+        int firstWord = (int) (fromBit >>> 6);
+        int lastWord = (int) ((toBit - 1) >>> 6);
+        long firstMask = -1L << fromBit;
+        long lastMask = -1L >>> (63 - ((toBit - 1) & 63));
+
+        if (firstWord == lastWord) return Long.bitCount(words[firstWord] & firstMask & lastMask);
+
+        long count = Long.bitCount(words[firstWord] & firstMask);
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count + Long.bitCount(words[lastWord] & lastMask);
+    }
+
+    /**
+     * Sets bits first..last, both inclusive, of the row starting at word rowStart, a word at a time
+     */
+    static void setRange(long[] words, int rowStart, int first, int last) {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            words[rowStart + firstWord] |= firstMask & lastMask;
+            return;
+        }
+
+        words[rowStart + firstWord] |= firstMask;
+        Arrays.fill(words, rowStart + firstWord + 1, rowStart + lastWord, -1L);
+        words[rowStart + lastWord] |= lastMask;
+    }
+}
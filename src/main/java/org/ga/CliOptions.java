@@ -0,0 +1,116 @@
+package org.ga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits command line arguments into positional arguments and "--name=value" or
+ * "--flag" options. Options may appear anywhere on the command line.
+ */
+final class CliOptions {
+
+    /**
+     * Upper bound on the distances a single range may expand to
+     */
+    static final int MAX_DISTANCES = 1_000_000;
+
+    /**
+     * Every option the command line understands, so a misspelled one fails instead of being ignored
+     */
+    private static final Set<String> KNOWN_OPTIONS = Set.of("batch", "cache-mb", "convert", "distance", "engine", "format",
+            "frames", "mask", "metric", "offheap", "parallel", "readers", "serve", "sparse", "streaming", "threads", "walls");
+
+    private final List<String> positionals;
+    private final Map<String, String> options;
+
+    private CliOptions(List<String> positionals, Map<String, String> options) {
+        this.positionals = positionals;
+        this.options = options;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an option isn't one the command line understands
+     */
+    static CliOptions parse(String[] args) {
+        List<String> positionals = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.length() > 2) {
+                int equals = arg.indexOf('=');
+                String name = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+                if (!KNOWN_OPTIONS.contains(name)) {
+                    throw new IllegalArgumentException("Unknown option --" + name + ". Expected one of " +
+                            KNOWN_OPTIONS.stream().sorted().map(known -> "--" + known).collect(Collectors.joining(", ")));
+                }
+                options.put(name, equals < 0 ? "" : arg.substring(equals + 1));
+            } else {
+                positionals.add(arg);
+            }
+        }
+
+        return new CliOptions(Collections.unmodifiableList(positionals), options);
+    }
+
+    List<String> positionals() {
+        return positionals;
+    }
+
+    boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * @return the value of option 'name' or null if it wasn't given
+     */
+    String get(String name) {
+        return options.get(name);
+    }
+
+    /**
+     * @return the integer value of option 'name', or defaultValue if it wasn't given or has no value
+     */
+    int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Expected --" + name + " to be an integer but found " + value);
+        }
+    }
+
+    /**
+     * Parses a distance argument, either a single integer or a comma separated list of integers
+     * and inclusive ranges, e.g. "3", "0,5,10" or "0-500"
+     *
+     * @return the distances in the order given
+     * @throws NumberFormatException if a distance isn't an integer
+     */
+    static int[] parseDistances(String argument) {
+        IntStream.Builder distances = IntStream.builder();
+        for (String part : argument.split(",", -1)) {
+            part = part.trim();
+            int dash = part.indexOf('-', 1); // A leading '-' is a minus sign, not a range
+            if (dash < 0) {
+                distances.add(Integer.parseInt(part));
+                continue;
+            }
+
+            int from = Integer.parseInt(part.substring(0, dash));
+            int to = Integer.parseInt(part.substring(dash + 1));
+            if (to < from) throw new IllegalArgumentException("Expected distance range " + part + " to go from low to high");
+            if ((long) to - from >= MAX_DISTANCES) throw new IllegalArgumentException("Distance range " + part + " has more than " + MAX_DISTANCES + " distances");
+            for (int distance = from; distance <= to; distance++) distances.add(distance);
+        }
+
+        return distances.build().toArray();
+    }
+}
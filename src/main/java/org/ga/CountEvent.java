@@ -0,0 +1,52 @@
+package org.ga;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event committed for every count the command line makes. Costs a check of
+ * a flag unless a recording with org.ga.Count enabled is running, e.g.
+ * -XX:StartFlightRecording:settings=default
+ */
+@Name("org.ga.Count")
+@Label("Grid Count")
+@Category("Grid Cell Neighbors")
+@Description("Cells within a Manhattan distance of any positive cell, counted once")
+final class CountEvent extends Event {
+
+    @Label("Distance")
+    int distance;
+
+    @Label("Count")
+    long count;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseTime;
+
+    @Label("Compute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long computeTime;
+
+    /**
+     * Commits an event for a count if one is being recorded
+     */
+    static void commit(OutputFormat.Report report) {
+        CountEvent event = new CountEvent();
+        if (!event.shouldCommit()) return;
+
+        event.distance = report.distance();
+        event.count = report.count();
+        event.cells = report.cells();
+        event.parseTime = report.parseNanos();
+        event.computeTime = report.computeNanos();
+        event.commit();
+    }
+}
@@ -0,0 +1,180 @@
+package org.ga;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Strategies for counting the cells within a Manhattan distance of any positive cell.
+ * Every engine returns exactly the same count as the original breadth first search,
+ * they only differ in how they get there. Pass one to
+ * GridCellNeighbors.findTotalCellCountWithinRange(grid, n, engine) to choose it.
+ */
+public enum CountingEngine {
+
+    /**
+     * Original breadth first search over GridCoordinate objects
+     */
+    LEGACY_BFS {
+        @Override
+        int count(int[][] grid, int n) {
+            return GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+        }
+
+        @Override
+        int count(PositiveMask mask, int n) {
+            return GridCellNeighbors.findTotalCellCountWithinRange(mask.toGrid(), n);
+        }
+    },
+
+    /**
+     * Multi-source breadth first search over a primitive ring buffer with a bitset of visited cells.
+     * Allocates nothing per cell
+     */
+    FRONTIER_BFS {
+        @Override
+        int count(PositiveMask mask, int n) {
+            return FrontierBfs.count(mask, n);
+        }
+
+        @Override
+        RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+            PositiveMask mask = PositiveMask.from(cells);
+            return (fromRow, toRow) -> FrontierBfs.countRows(mask, n, fromRow, toRow);
+        }
+    },
+
+    /**
+     * Area of the union of clipped Manhattan diamonds, merged row by row as intervals.
+     * Cost depends on positives x rows instead of cells x n, best for sparse grids with large n
+     */
+    DIAMOND_UNION {
+        @Override
+        int count(PositiveMask mask, int n) {
+            return DiamondUnion.count(mask, n);
+        }
+
+        @Override
+        long countCells(PositiveCells cells, int n) {
+            return DiamondUnion.count(cells, n);
+        }
+
+        @Override
+        RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+            // Positives are gathered once and shared by every band
+            DiamondUnion.PositiveRows positives = DiamondUnion.PositiveRows.of(cells);
+            return (fromRow, toRow) -> positives.countCoveredRows(n, fromRow, toRow);
+        }
+    },
+
+    /**
+     * Two pass L1 distance transform, then counts cells with distance at most n.
+     * Predictable O(rows x cols) time, best for dense grids with many positives
+     */
+    DISTANCE_TRANSFORM {
+        @Override
+        int count(PositiveMask mask, int n) {
+            return DistanceTransform.count(mask, n);
+        }
+
+        @Override
+        RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+            PositiveMask mask = PositiveMask.from(cells);
+            return (fromRow, toRow) -> DistanceTransform.countRows(mask, n, fromRow, toRow);
+        }
+    },
+
+    /**
+     * Dilates the positive mask one step at a time, 64 cells per long operation, then counts the set bits.
+     * Best for dense grids with moderate n
+     */
+    BITSET_DILATION {
+        @Override
+        int count(PositiveMask mask, int n) {
+            return BitsetDilation.count(mask, n);
+        }
+
+        @Override
+        RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+            PositiveMask mask = PositiveMask.from(cells);
+            return (fromRow, toRow) -> BitsetDilation.countRows(mask, n, fromRow, toRow);
+        }
+    },
+
+    /**
+     * Breadth first search over long cell indices with the visited bits and frontier held off heap.
+     * Not limited to 2^31 cells, pair it with a SegmentedMask for grids too large for a PositiveMask
+     */
+    SEGMENTED_BFS {
+        @Override
+        int count(PositiveMask mask, int n) {
+            return Math.toIntExact(SegmentedBfs.count(mask, n));
+        }
+
+        @Override
+        long countCells(PositiveCells cells, int n) {
+            return SegmentedBfs.count(cells, n);
+        }
+
+        @Override
+        RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+            return (fromRow, toRow) -> SegmentedBfs.countRows(cells, n, fromRow, toRow);
+        }
+    };
+
+    /**
+     * Counts the grid through its mask of positive cells, which is all the faster engines look at
+     */
+    int count(int[][] grid, int n) {
+        return count(PositiveMask.of(grid), n);
+    }
+
+    abstract int count(PositiveMask mask, int n);
+
+    /**
+     * Counts a grid given by any representation of its positive cells. Only diamond_union and
+     * segmented_bfs work on any cells directly, the other engines first copy them into a PositiveMask
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    long countCells(PositiveCells cells, int n) {
+        return count(PositiveMask.from(cells), n);
+    }
+
+    /**
+     * Creates a counter for independent row bands of the grid, used to run the engine in parallel
+     *
+     * @param cells positive cells of a non-empty grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return a thread safe counter for bands of the grid
+     * @throws IllegalArgumentException if the engine can't count row bands, see supportsRowBands
+     */
+    RowBandCounter rowBandCounter(PositiveCells cells, int n) {
+        throw new IllegalArgumentException("Engine " + this + " cannot count row bands in parallel");
+    }
+
+    /**
+     * @return true if this engine can split the grid into row bands for parallel counting
+     */
+    public boolean supportsRowBands() {
+        return this != LEGACY_BFS;
+    }
+
+    /**
+     * Looks up an engine by name, ignoring case and treating '-' as '_'
+     *
+     * @param name of the engine, e.g. "frontier-bfs"
+     * @return the matching engine
+     */
+    public static CountingEngine fromName(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (CountingEngine engine : values()) {
+            if (engine.name().equals(normalized)) return engine;
+        }
+
+        throw new IllegalArgumentException("Unknown engine " + name + ". Expected one of " +
+                Arrays.stream(values()).map(engine -> engine.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+    }
+}
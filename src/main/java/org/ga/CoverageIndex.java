@@ -0,0 +1,177 @@
+package org.ga;
+
+import java.util.Objects;
+
+/**
+ * Keeps the count of cells within distance n of a positive cell up to date as cells change.
+ * For every cell it stores how many positives cover it. Turning a cell positive or non-positive
+ * only touches the cells of its own diamond of radius n, so an update costs O(n^2) whatever the
+ * size of the grid. A cell is covered while its coverage is above zero.
+ *
+ * Not thread safe.
+ */
+public final class CoverageIndex {
+    private final int rows;
+    private final int cols;
+    private final int n;
+    private final long[] positives; // Bit y * cols + x is set if that cell is positive
+    private final int[] coverage;   // Number of positives within distance n of each cell, row-major
+    private long covered;
+
+    private CoverageIndex(int rows, int cols, int n) {
+        if ((long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid with " + rows + "x" + cols + " cells is too large for a coverage index");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.n = n;
+        this.positives = Bits.newBitset((long) rows * cols);
+        this.coverage = new int[rows * cols];
+    }
+
+    /**
+     * Builds the index for the current values of the grid
+     *
+     * @param grid rectangular 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell, fixed for the life of the index
+     * @return an index whose coveredCount equals findTotalCellCountWithinRange(grid, n)
+     */
+    public static CoverageIndex of(int[][] grid, int n) {
+        return of(PositiveMask.of(grid), n);
+    }
+
+    /**
+     * Builds the index for a grid given by its positive cells
+     *
+     * @param mask positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell, fixed for the life of the index
+     */
+    public static CoverageIndex of(PositiveMask mask, int n) {
+        if (n < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+
+        CoverageIndex index = new CoverageIndex(mask.rows(), mask.cols(), n);
+        for (int y = 0; y < mask.rows(); y++) {
+            for (int x = 0; x < mask.cols(); x++) {
+                int cell = y * index.cols + x;
+                if (mask.isPositive(y, x)) index.positives[cell >>> 6] |= 1L << cell;
+            }
+        }
+
+        // Stamping each diamond costs positives x n^2, summing row windows costs cells x n. Pick the cheaper
+        double reach = Math.min(n, (double) mask.rows() + mask.cols());
+        double stampCost = mask.positiveCount() * (2 * reach * (reach + 1) + 1);
+        double windowCost = (double) mask.rows() * mask.cols() * (2 * Math.min(reach, mask.rows()) + 1);
+        if (stampCost <= windowCost) {
+            for (int y = 0; y < mask.rows(); y++) {
+                for (int x = 0; x < mask.cols(); x++) {
+                    if (mask.isPositive(y, x)) index.addDiamond(y, x, 1);
+                }
+            }
+        } else {
+            index.sumRowWindows(mask);
+        }
+
+        return index;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return the distance threshold the index was built for
+     */
+    public int distance() {
+        return n;
+    }
+
+    /**
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public long coveredCount() {
+        return covered;
+    }
+
+    /**
+     * @return true if the cell at y,x is within distance n of a positive cell
+     */
+    public boolean isCovered(int y, int x) {
+        return coverage[index(y, x)] > 0;
+    }
+
+    /**
+     * Changes the value of a cell. Only matters if the cell goes from positive to non-positive
+     * or the other way around, in which case the coverage of its diamond is updated
+     *
+     * @param y row of the cell
+     * @param x column of the cell
+     * @param value new value of the cell
+     * @return the updated count of cells within distance n of any positive cell
+     */
+    public long setCell(int y, int x, int value) {
+        int index = index(y, x);
+        boolean wasPositive = (positives[index >>> 6] & (1L << index)) != 0;
+        boolean isPositive = value > 0;
+        if (wasPositive == isPositive) return covered;
+
+        positives[index >>> 6] ^= 1L << index;
+        addDiamond(y, x, isPositive ? 1 : -1);
+        return covered;
+    }
+
+    private int index(int y, int x) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+        return y * cols + x;
+    }
+
+    /**
+     * Adds delta to the coverage of every cell within distance n of y,x, tracking cells that
+     * become covered or uncovered
+     */
+    private void addDiamond(int y, int x, int delta) {
+        int top = (int) Math.max(0, (long) y - n);
+        int bottom = (int) Math.min(rows - 1, (long) y + n);
+        for (int r = top; r <= bottom; r++) {
+            int half = (int) Math.min(cols, (long) n - Math.abs(r - y));
+            int rowStart = r * cols;
+            for (int c = rowStart + x - Math.min(half, x), end = rowStart + x + Math.min(half, cols - 1 - x); c <= end; c++) {
+                int before = coverage[c];
+                coverage[c] = before + delta;
+                if (before == 0) covered++;
+                else if (before + delta == 0) covered--;
+            }
+        }
+    }
+
+    /**
+     * Computes every cell's coverage by summing, over the rows within n, the positives in the
+     * row window of half width n - |dy|, using per-row prefix sums of positives
+     */
+    private void sumRowWindows(PositiveMask mask) {
+        int[][] prefix = new int[rows][cols + 1]; // prefix[r][x] is the number of positives in row r before column x
+        for (int r = 0; r < rows; r++) {
+            for (int x = 0; x < cols; x++) {
+                prefix[r][x + 1] = prefix[r][x] + (mask.isPositive(r, x) ? 1 : 0);
+            }
+        }
+
+        for (int y = 0; y < rows; y++) {
+            int top = (int) Math.max(0, (long) y - n);
+            int bottom = (int) Math.min(rows - 1, (long) y + n);
+            for (int x = 0; x < cols; x++) {
+                int sum = 0;
+                for (int r = top; r <= bottom; r++) {
+                    int half = (int) Math.min(cols, (long) n - Math.abs(r - y));
+                    sum += prefix[r][x + 1 + Math.min(half, cols - 1 - x)] - prefix[r][x - Math.min(half, x)];
+                }
+                coverage[y * cols + x] = sum;
+                if (sum > 0) covered++;
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.ga;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The cells within distance n of any positive cell, stored per row as sorted, disjoint runs
+ * of covered columns. A row costs 4 bytes plus 8 per run, so coverage made of a few large
+ * diamonds stays small however large the grid is. toMask expands it into one bit per cell.
+ *
+ * Coverage masks are written to and read from files with this layout, all numbers little-endian:
+ *
+ * bytes 0-3   magic "GCNR"
+ * byte  4     format version, currently 1
+ * bytes 5-7   reserved, 0
+ * bytes 8-11  rows
+ * bytes 12-15 cols
+ * then one 4 byte run count per row, then every run as a 4 byte first and 4 byte last column
+ */
+public final class CoverageMask {
+
+    /**
+     * File extension of written coverage masks
+     */
+    public static final String EXTENSION = ".gcnr";
+
+    private static final int HEADER_BYTES = 16;
+    private static final byte[] MAGIC = {'G', 'C', 'N', 'R'};
+    private static final byte VERSION = 1;
+
+    private final int rows;
+    private final int cols;
+    private final int[] rowOffsets; // Runs of row y are runs[rowOffsets[y] .. rowOffsets[y + 1])
+    private final long[] runs;      // Packed (first << 32 | last), both inclusive
+
+    private CoverageMask(int rows, int cols, int[] rowOffsets, long[] runs) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowOffsets = rowOffsets;
+        this.runs = runs;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return the number of runs in row y
+     */
+    public int runCount(int y) {
+        Objects.checkIndex(y, rows);
+        return rowOffsets[y + 1] - rowOffsets[y];
+    }
+
+    /**
+     * @return the first column of run i of row y
+     */
+    public int runStart(int y, int i) {
+        return (int) (runs[run(y, i)] >>> 32);
+    }
+
+    /**
+     * @return the last column, inclusive, of run i of row y
+     */
+    public int runEnd(int y, int i) {
+        return (int) runs[run(y, i)];
+    }
+
+    /**
+     * @return the number of covered cells, the same as findTotalCellCountWithinRange
+     */
+    public long coveredCount() {
+        long covered = 0;
+        for (long run : runs) {
+            covered += (int) run - (int) (run >>> 32) + 1;
+        }
+        return covered;
+    }
+
+    public boolean isCovered(int y, int x) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+
+        // The last run starting at or before x is the only one that can hold it
+        int from = rowOffsets[y];
+        int to = rowOffsets[y + 1];
+        int i = Arrays.binarySearch(runs, from, to, ((long) x << 32) | 0xFFFFFFFFL);
+        int candidate = (i >= 0 ? i : -i - 1) - 1;
+        return candidate >= from && (int) runs[candidate] >= x;
+    }
+
+    /**
+     * Expands the runs into a bitmap with one bit per cell, set for covered cells
+     *
+     * @throws IllegalArgumentException if the grid has too many cells for a mask
+     */
+    public PositiveMask toMask() {
+        PositiveMask mask = PositiveMask.empty(rows, cols);
+        long[] words = mask.words();
+        for (int y = 0; y < rows; y++) {
+            int rowStart = y * mask.wordsPerRow();
+            for (int i = rowOffsets[y]; i < rowOffsets[y + 1]; i++) {
+                Bits.setRange(words, rowStart, (int) (runs[i] >>> 32), (int) runs[i]);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Writes the mask to a file, see the class comment for the layout
+     *
+     * @param out path of the file to create or replace
+     */
+    public void write(Path out) throws IOException {
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC).put(VERSION).put((byte) 0).putShort((short) 0).putInt(rows).putInt(cols);
+
+            for (int y = 0; y < rows; y++) {
+                if (buffer.remaining() < Integer.BYTES) flush(channel, buffer);
+                buffer.putInt(rowOffsets[y + 1] - rowOffsets[y]);
+            }
+            for (long run : runs) {
+                if (buffer.remaining() < Long.BYTES) flush(channel, buffer);
+                buffer.putInt((int) (run >>> 32)).putInt((int) run);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Reads a mask written by write, through memory mapping
+     *
+     * @throws IllegalArgumentException if the file isn't a coverage mask
+     */
+    public static CoverageMask read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new IllegalArgumentException("Expected a coverage mask but " + path + " is too short");
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) throw new IllegalArgumentException("Expected a coverage mask but " + path + " doesn't start with GCNR");
+            }
+            if (header.get(4) != VERSION) throw new IllegalArgumentException("Unsupported coverage mask version " + header.get(4) + " in " + path);
+
+            int rows = header.getInt(8);
+            int cols = header.getInt(12);
+            if (rows < 0 || cols < 0) throw new IllegalArgumentException("Coverage mask " + path + " can't have " + rows + "x" + cols + " cells");
+
+            long countBytes = (long) rows * Integer.BYTES;
+            if (channel.size() < HEADER_BYTES + countBytes) {
+                throw new IllegalArgumentException("Coverage mask is truncated, expected at least " + (HEADER_BYTES + countBytes) + " bytes but found " + channel.size());
+            }
+            Builder builder = new Builder(rows, cols);
+            int[] runCounts = new int[rows];
+            if (rows > 0) {
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, countBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(runCounts);
+            }
+
+            long totalRuns = 0;
+            for (int count : runCounts) {
+                if (count < 0) throw new IllegalArgumentException("Coverage mask " + path + " has a row with " + count + " runs");
+                totalRuns += count;
+            }
+            long expectedSize = HEADER_BYTES + countBytes + totalRuns * Long.BYTES;
+            if (channel.size() < expectedSize) {
+                throw new IllegalArgumentException("Coverage mask is truncated, expected " + expectedSize + " bytes but found " + channel.size());
+            }
+
+            // Map the runs a bounded region at a time, never splitting a run
+            long position = HEADER_BYTES + countBytes;
+            MappedByteBuffer mapped = null;
+            int y = 0;
+            int left = rows == 0 ? 0 : runCounts[0];
+            for (long run = 0; run < totalRuns; run++) {
+                if (mapped == null || !mapped.hasRemaining()) {
+                    long bytes = Math.min(1L << 30, (totalRuns - run) * Long.BYTES);
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+                    mapped.order(ByteOrder.LITTLE_ENDIAN);
+                    position += bytes;
+                }
+                while (left == 0) {
+                    builder.endRow();
+                    left = runCounts[++y];
+                }
+                builder.addRun(mapped.getInt(), mapped.getInt());
+                left--;
+            }
+            return builder.build();
+        }
+    }
+
+    private int run(int y, int i) {
+        Objects.checkIndex(i, runCount(y));
+        return rowOffsets[y] + i;
+    }
+
+    /**
+     * Collects runs a row at a time, top to bottom. Rows not ended by build are left empty
+     */
+    static final class Builder {
+        private final int rows;
+        private final int cols;
+        private final int[] rowOffsets;
+        private long[] runs = new long[64];
+        private int runCount;
+        private int row;
+
+        Builder(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.rowOffsets = new int[rows + 1];
+        }
+
+        /**
+         * Adds a run of covered columns to the current row, after any run already added to it
+         */
+        void addRun(int first, int last) {
+            if (first < 0 || last < first || last >= cols) {
+                throw new IllegalArgumentException("Run " + first + "-" + last + " doesn't fit in a row of " + cols + " cells");
+            }
+            if (row >= rows) throw new IllegalStateException("Every row of the coverage mask has ended");
+            if (runCount > rowOffsets[row] && first <= (int) runs[runCount - 1] + 1) {
+                throw new IllegalArgumentException("Runs of a row must be sorted and separated by at least one uncovered cell");
+            }
+            if (runCount == runs.length) {
+                if (runCount >= Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Coverage mask can hold at most " + runCount + " runs");
+                runs = Arrays.copyOf(runs, (int) Math.min(Integer.MAX_VALUE - 8, (long) runCount << 1));
+            }
+            runs[runCount++] = ((long) first << 32) | last;
+        }
+
+        void endRow() {
+            rowOffsets[++row] = runCount;
+        }
+
+        CoverageMask build() {
+            while (row < rows) endRow();
+            return new CoverageMask(rows, cols, rowOffsets, Arrays.copyOf(runs, runCount));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.ga;
+
+/**
+ * Answers "how many covered cells are in this rectangle?" for one grid and distance in O(1), for
+ * viewports that are queried many times. Built once from a CoverageMask in O(rows x cols).
+ *
+ * A full summed-area table would cost an int per cell, as much as the grid itself. Instead the
+ * table is only kept every BAND_ROWS rows, and the rows in between are made up from per-row counts
+ * at every 64 column word plus the covered bits of the word itself:
+ *
+ * covered in [0, y) x [0, x) = band table at the band holding y, plus for each row of that band above y,
+ *                              the row's count up to x's word plus a popcount of the rest of the word
+ *
+ * That's at most BAND_ROWS - 1 lookups and popcounts per corner, and about 0.7 bytes per cell in all.
+ *
+ * Immutable, so it can be queried from any number of threads.
+ */
+public final class CoverageRegionIndex {
+
+    /**
+     * Rows between the rows the summed-area table is kept for
+     */
+    static final int BAND_ROWS = 8;
+
+    private final int rows;
+    private final int cols;
+    private final int wordsPerRow;
+    private final long[] words;     // Covered bits, each row starting on a new word
+    private final int[] rowCounts;  // rowCounts[y * (wordsPerRow + 1) + w] is the covered cells of row y before word w
+    private final int[] bandTable;  // bandTable[b * (cols + 1) + x] is the covered cells in [0, b * BAND_ROWS) x [0, x)
+
+    private CoverageRegionIndex(PositiveMask covered) {
+        if ((long) covered.rows() * covered.cols() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid with " + covered.rows() + "x" + covered.cols() + " cells is too large for a region index");
+        }
+        this.rows = covered.rows();
+        this.cols = covered.cols();
+        this.wordsPerRow = covered.wordsPerRow();
+        this.words = covered.words();
+        this.rowCounts = new int[rows * (wordsPerRow + 1)];
+        this.bandTable = new int[(rows / BAND_ROWS + 1) * (cols + 1)];
+
+        int[] above = new int[cols + 1]; // Covered cells in [0, y) x [0, x) for the current row y
+        for (int y = 0; y < rows; y++) {
+            if (y % BAND_ROWS == 0) System.arraycopy(above, 0, bandTable, y / BAND_ROWS * (cols + 1), cols + 1);
+
+            int wordStart = y * wordsPerRow;
+            int countStart = y * (wordsPerRow + 1);
+            int inRow = 0;
+            for (int w = 0; w < wordsPerRow; w++) {
+                rowCounts[countStart + w] = inRow;
+                long word = words[wordStart + w];
+                for (int x = w << 6, end = Math.min(cols, x + 64); x < end; x++) {
+                    inRow += (int) (word >>> x) & 1;
+                    above[x + 1] += inRow;
+                }
+            }
+            rowCounts[countStart + wordsPerRow] = inRow;
+        }
+        if (rows % BAND_ROWS == 0) System.arraycopy(above, 0, bandTable, rows / BAND_ROWS * (cols + 1), cols + 1);
+    }
+
+    /**
+     * @param coverage covered cells of the grid, e.g. from GridCellNeighbors.findCellsWithinRange
+     * @throws IllegalArgumentException if the grid has more than Integer.MAX_VALUE cells
+     */
+    public static CoverageRegionIndex of(CoverageMask coverage) {
+        return new CoverageRegionIndex(coverage.toMask());
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Counts covered cells in rows [fromRow, toRow) and columns [fromCol, toCol). The rectangle is
+     * clipped to the grid, so viewports reaching past its edges are fine
+     *
+     * @return Count of covered cells in the rectangle
+     * @throws IllegalArgumentException if fromRow > toRow or fromCol > toCol
+     */
+    public long count(int fromRow, int fromCol, int toRow, int toCol) {
+        if (fromRow > toRow || fromCol > toCol) {
+            throw new IllegalArgumentException("Expected a rectangle with fromRow <= toRow and fromCol <= toCol but found rows "
+                    + fromRow + "-" + toRow + " and cols " + fromCol + "-" + toCol);
+        }
+        int top = clip(fromRow, rows);
+        int bottom = clip(toRow, rows);
+        int left = clip(fromCol, cols);
+        int right = clip(toCol, cols);
+        return (long) coveredBefore(bottom, right) - coveredBefore(top, right) - coveredBefore(bottom, left) + coveredBefore(top, left);
+    }
+
+    /**
+     * Counts many rectangles, each given by four ints in the order count takes them
+     *
+     * @param rectangles fromRow, fromCol, toRow, toCol of every rectangle, one after another
+     * @return Count of covered cells in each rectangle
+     * @throws IllegalArgumentException if rectangles isn't a multiple of 4 ints or a rectangle is inverted
+     */
+    public long[] countAll(int[] rectangles) {
+        if (rectangles.length % 4 != 0) {
+            throw new IllegalArgumentException("Expected 4 ints per rectangle but found " + rectangles.length + " ints");
+        }
+        long[] counts = new long[rectangles.length / 4];
+        for (int i = 0; i < counts.length; i++) {
+            int at = i * 4;
+            counts[i] = count(rectangles[at], rectangles[at + 1], rectangles[at + 2], rectangles[at + 3]);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the number of covered cells, the same as findTotalCellCountWithinRange
+     */
+    public long coveredCount() {
+        return coveredBefore(rows, cols);
+    }
+
+    /**
+     * @return covered cells in [0, y) x [0, x), for 0 <= y <= rows and 0 <= x <= cols
+     */
+    private int coveredBefore(int y, int x) {
+        int band = y / BAND_ROWS;
+        int covered = bandTable[band * (cols + 1) + x];
+        int word = x >>> 6;
+        long partial = (x & 63) == 0 ? 0 : (1L << x) - 1;
+        for (int r = band * BAND_ROWS; r < y; r++) {
+            covered += rowCounts[r * (wordsPerRow + 1) + word];
+            if (partial != 0) covered += Long.bitCount(words[r * wordsPerRow + word] & partial);
+        }
+        return covered;
+    }
+
+    private static int clip(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+}
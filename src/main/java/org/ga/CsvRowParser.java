@@ -0,0 +1,59 @@
+package org.ga;
+
+/**
+ * Turns one line of a csv grid into a row of integers
+ */
+final class CsvRowParser {
+
+    private CsvRowParser() {
+    }
+
+    /**
+     * Parses a line, ignoring whitespace and blank values. Scans the characters directly
+     * instead of going through a regex, split and stream for every line.
+     *
+     * @param line of comma separated integers
+     * @return the integers on the line, empty if the line has no non-blank values
+     * @throws NumberFormatException if a value isn't an integer
+     */
+    static int[] parseRow(String line) {
+        RowAccumulator row = new RowAccumulator();
+        int valueStart = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            boolean plain;
+            if (c >= '0' && c <= '9') plain = row.digit(c - '0');
+            else if (c == ',') plain = row.endValue();
+            else if (c == '-' || c == '+') plain = row.sign(c == '-');
+            else plain = RowAccumulator.isWhitespace(c);
+
+            if (c == ',' && plain) valueStart = i + 1;
+            if (!plain) {
+                // Hand the whole value to Integer.parseInt so errors match it exactly
+                int valueEnd = line.indexOf(',', i);
+                if (valueEnd < 0) valueEnd = line.length();
+                row.parseValue(stripWhitespace(line, valueStart, valueEnd));
+                i = valueEnd;
+                valueStart = valueEnd + 1;
+            }
+        }
+
+        if (!row.endValue()) row.parseValue(stripWhitespace(line, valueStart, line.length()));
+        int[] values = row.endRow();
+        if (Metrics.ENABLED && values.length > 0) {
+            Metrics.add(Metrics.Counter.ROWS_PARSED, 1);
+            Metrics.add(Metrics.Counter.TOKENS_PARSED, values.length);
+        }
+        return values;
+    }
+
+    private static String stripWhitespace(String line, int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (!RowAccumulator.isWhitespace(c)) value.append(c);
+        }
+        return value.toString();
+    }
+}
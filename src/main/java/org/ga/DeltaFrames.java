@@ -0,0 +1,131 @@
+package org.ga;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Replays a stream of delta frames against a CoverageIndex, writing the covered count after each
+ * frame. A frame is one line of changed cells, each "y,x,value", separated by spaces, tabs or
+ * semicolons. An empty line is a frame with no changes:
+ *
+ * 3,4,1 10,2,0
+ * 0,0,-5;3,4,0
+ *
+ * Each change costs one CoverageIndex.setCell, so a frame costs O(changes x n^2) however large the
+ * grid is. Frames are parsed straight from a char buffer without a String per line or per number,
+ * and output is only flushed before waiting for more input, so a live stream sees every count
+ * as soon as its frame is complete while a file is written in large blocks. A bad line stops the
+ * replay, but the counts of every frame before it are still flushed.
+ */
+final class DeltaFrames {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CoverageIndex index;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final int[] change = new int[3]; // y, x and value of the change being parsed
+    private int field;
+    private long number;
+    private boolean negative;
+    private boolean inNumber;
+    private long line = 1;
+
+    DeltaFrames(CoverageIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Applies every frame of in, writing one count per line to out
+     *
+     * @return the number of frames applied
+     * @throws IllegalArgumentException if a frame isn't y,x,value changes or names a cell outside the grid
+     */
+    long run(Reader in, Writer out) throws IOException {
+        long frames = 0;
+        boolean frameStarted = false;
+        try {
+            while (true) {
+                // Reading may block on a live stream, so anything written so far goes out first
+                out.flush();
+                int read = in.read(buffer);
+                if (read < 0) break;
+
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c >= '0' && c <= '9') {
+                        frameStarted = true;
+                        inNumber = true;
+                        number = number * 10 + (c - '0');
+                        if (number > Integer.MAX_VALUE + 1L) throw invalid("a number out of the int range");
+                    } else if (c == '-') {
+                        if (inNumber || negative) throw invalid("'-' inside a number");
+                        negative = true;
+                        frameStarted = true;
+                    } else if (c == ',') {
+                        endField();
+                        if (field == 3) throw invalid("more than 3 values in a change");
+                    } else if (c == ' ' || c == '\t' || c == ';') {
+                        endChange();
+                    } else if (c == '\n') {
+                        endChange();
+                        out.write(Long.toString(index.coveredCount()));
+                        out.write('\n');
+                        frames++;
+                        frameStarted = false;
+                        line++;
+                    } else if (c != '\r') {
+                        throw invalid("'" + c + "'");
+                    }
+                }
+            }
+
+            // A last frame without a trailing newline still counts
+            endChange();
+            if (frameStarted) {
+                out.write(Long.toString(index.coveredCount()));
+                out.write('\n');
+                frames++;
+            }
+            return frames;
+        } finally {
+            // Counts of the frames before a bad line are still written
+            out.flush();
+        }
+    }
+
+    private void endField() {
+        if (!inNumber) throw invalid("a missing value");
+        long value = negative ? -number : number;
+        if (value > Integer.MAX_VALUE) throw invalid("a number out of the int range");
+        change[field++] = (int) value;
+        number = 0;
+        negative = false;
+        inNumber = false;
+    }
+
+    /**
+     * Applies the change parsed so far, if any
+     */
+    private void endChange() {
+        if (field == 0 && !inNumber && !negative) return;
+        endField();
+        if (field != 3) throw invalid("a change without y, x and value");
+        field = 0;
+
+        int y = change[0];
+        int x = change[1];
+        if (y < 0 || y >= index.rows() || x < 0 || x >= index.cols()) {
+            throw invalid("cell " + y + "," + x + " outside the " + index.rows() + "x" + index.cols() + " grid");
+        }
+        index.setCell(y, x, change[2]);
+    }
+
+    private IllegalArgumentException invalid(String found) {
+        field = 0;
+        number = 0;
+        negative = false;
+        inNumber = false;
+        return new IllegalArgumentException("Expected frames of y,x,value changes but found " + found + " on line " + line);
+    }
+}
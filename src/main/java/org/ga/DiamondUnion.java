@@ -0,0 +1,257 @@
+package org.ga;
+
+import java.util.Arrays;
+
+/**
+ * Counts covered cells as the area of a union of Manhattan diamonds, one per positive
+ * cell, clipped to the grid. Row r of the diamond around positive (py, px) is the
+ * interval [px - h, px + h] where h = n - |r - py|, so each output row is just a
+ * union of intervals coming from the positive rows within n of it. Cost depends on
+ * positives x rows rather than on cells x n.
+ */
+final class DiamondUnion {
+
+    private DiamondUnion() {
+    }
+
+    /**
+     * Computes the same count as GridCellNeighbors.findTotalCellCountWithinRange
+     *
+     * @param mask positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    static int count(PositiveMask mask, int n) {
+        return Math.toIntExact(count((PositiveCells) mask, n));
+    }
+
+    /**
+     * Counts covered cells of a grid of any size, dense or sparse
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    static long count(PositiveCells cells, int n) {
+        if (n < 0 || cells.rows() == 0 || cells.cols() == 0) return 0;
+
+        PositiveRows positives = PositiveRows.of(cells);
+        return positives.countCoveredRows(n, 0, cells.rows());
+    }
+
+    /**
+     * Finds the covered cells of every row as disjoint runs, the same cells the count is made of
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return the covered cells of the grid
+     */
+    static CoverageMask coverage(PositiveCells cells, int n) {
+        CoverageMask.Builder coverage = new CoverageMask.Builder(cells.rows(), cells.cols());
+        if (n < 0 || cells.cols() == 0) return coverage.build();
+
+        PositiveRows positives = PositiveRows.of(cells);
+        IntervalBuffer intervals = new IntervalBuffer();
+        int first = 0;
+        for (int r = 0; r < cells.rows(); r++) {
+            first = positives.firstReaching(first, r, n);
+            positives.collectIntervals(r, n, first, intervals);
+            for (int i = 0, runs = intervals.merge(); i < runs; i++) {
+                coverage.addRun(intervals.start(i), intervals.end(i));
+            }
+            coverage.endRow();
+        }
+        return coverage.build();
+    }
+
+    /**
+     * Positive cells grouped by row in compressed sparse row form. Only rows that hold
+     * at least one positive are stored, in increasing order, each with its sorted x values.
+     * Immutable once built, so several threads can count disjoint row bands at once.
+     */
+    static final class PositiveRows {
+        private final int width;
+        private final int[] rowIds;     // Row index of each non-empty row
+        private final int[] rowOffsets; // xs of rowIds[i] are xs[rowOffsets[i] .. rowOffsets[i + 1])
+        private final int[] xs;
+
+        PositiveRows(int width, int[] rowIds, int[] rowOffsets, int[] xs) {
+            this.width = width;
+            this.rowIds = rowIds;
+            this.rowOffsets = rowOffsets;
+            this.xs = xs;
+        }
+
+        /**
+         * Gathers the positives of a mask word by word, and shares the coordinates of a sparse grid as they are
+         */
+        static PositiveRows of(PositiveCells cells) {
+            if (cells instanceof PositiveMask mask) return of(mask);
+            return SparseGrid.of(cells).positiveRows();
+        }
+
+        static PositiveRows of(PositiveMask mask) {
+            long[] words = mask.words();
+            int wordsPerRow = mask.wordsPerRow();
+
+            int nonEmptyRows = 0;
+            for (int y = 0; y < mask.rows(); y++) {
+                for (int w = y * wordsPerRow, end = w + wordsPerRow; w < end; w++) {
+                    if (words[w] != 0) {
+                        nonEmptyRows++;
+                        break;
+                    }
+                }
+            }
+
+            int[] rowIds = new int[nonEmptyRows];
+            int[] rowOffsets = new int[nonEmptyRows + 1];
+            int[] xs = new int[Math.toIntExact(mask.positiveCount())];
+            int next = 0;
+            int rowIndex = 0;
+            for (int y = 0; y < mask.rows(); y++) {
+                int before = next;
+                int wordStart = y * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    for (long word = words[wordStart + w]; word != 0; word &= word - 1) {
+                        xs[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    }
+                }
+                if (next > before) {
+                    rowIds[rowIndex] = y;
+                    rowOffsets[++rowIndex] = next;
+                }
+            }
+
+            return new PositiveRows(mask.cols(), rowIds, rowOffsets, xs);
+        }
+
+        int positiveCount() {
+            return xs.length;
+        }
+
+        /**
+         * Counts covered cells in rows [fromRow, toRow)
+         *
+         * @param n Maximum Manhattan distance from any positive cell
+         * @return number of covered cells in the requested rows
+         */
+        long countCoveredRows(int n, int fromRow, int toRow) {
+            if (n < 0 || xs.length == 0) return 0;
+
+            long covered = 0;
+            IntervalBuffer intervals = new IntervalBuffer(); // Scratch space reused across output rows
+            int first = 0; // First non-empty row that may still reach the current output row
+            for (int r = fromRow; r < toRow; r++) {
+                first = firstReaching(first, r, n);
+                collectIntervals(r, n, first, intervals);
+                covered += intervals.mergedLength();
+            }
+
+            if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+            return covered;
+        }
+
+        /**
+         * Skips the non-empty rows, from index 'first' on, that lie more than n rows above row r.
+         * Output rows are visited in increasing order, so the result only ever moves forward
+         *
+         * @return index of the first non-empty row that may reach row r
+         */
+        int firstReaching(int first, int r, int n) {
+            while (first < rowIds.length && rowIds[first] < r && r - rowIds[first] > n) first++;
+            return first;
+        }
+
+        /**
+         * Fills 'intervals' with the clipped diamond slices that fall on output row r
+         *
+         * @param first index of the first non-empty row that may reach row r
+         */
+        void collectIntervals(int r, int n, int first, IntervalBuffer intervals) {
+            intervals.clear();
+            for (int i = first; i < rowIds.length; i++) {
+                int py = rowIds[i];
+                if (py > r && py - r > n) break;
+
+                // Half width of the diamond slice. Each end is clipped to the grid before it's
+                // added, so a positive near column Integer.MAX_VALUE can't overflow
+                int half = n - Math.abs(r - py);
+                for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                    int px = xs[j];
+                    intervals.add(px - Math.min(half, px), px + Math.min(half, width - 1 - px));
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable list of closed intervals packed as (start << 32 | end), with both ends
+     * non-negative so that sorting the packed longs orders intervals by start
+     */
+    static final class IntervalBuffer {
+        private long[] intervals = new long[64];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int start, int end) {
+            if (size == intervals.length) intervals = Arrays.copyOf(intervals, size << 1);
+            intervals[size++] = ((long) start << 32) | end;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int start(int i) {
+            return (int) (intervals[i] >>> 32);
+        }
+
+        int end(int i) {
+            return (int) intervals[i];
+        }
+
+        /**
+         * Sorts the intervals and merges overlapping or touching ones in place
+         *
+         * @return the number of disjoint intervals left
+         */
+        int merge() {
+            if (size == 0) return 0;
+            Arrays.sort(intervals, 0, size);
+
+            int merged = 0;
+            int runStart = start(0);
+            int runEnd = end(0);
+            for (int i = 1; i < size; i++) {
+                int start = start(i);
+                int end = end(i);
+                if (start > runEnd + 1) {
+                    intervals[merged++] = ((long) runStart << 32) | runEnd;
+                    runStart = start;
+                    runEnd = end;
+                } else if (end > runEnd) {
+                    runEnd = end;
+                }
+            }
+            intervals[merged++] = ((long) runStart << 32) | runEnd;
+
+            size = merged;
+            return merged;
+        }
+
+        /**
+         * Merges the intervals and returns the number of integers covered by their union
+         */
+        int mergedLength() {
+            int total = 0;
+            for (int i = 0, runs = merge(); i < runs; i++) {
+                total += end(i) - start(i) + 1;
+            }
+            return total;
+        }
+    }
+}
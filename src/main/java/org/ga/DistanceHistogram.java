@@ -0,0 +1,60 @@
+package org.ga;
+
+/**
+ * Number of cells at each distance from their nearest positive cell, accumulated so the count
+ * for any threshold n is a single lookup. Built from one distance transform of the grid, so
+ * answering many thresholds costs one traversal instead of one per threshold.
+ */
+public final class DistanceHistogram {
+
+    /**
+     * cumulative[d] is the number of cells within distance d of a positive cell. Distances past
+     * the end cover the same cells as the last entry
+     */
+    private final long[] cumulative;
+
+    private DistanceHistogram(long[] cumulative) {
+        this.cumulative = cumulative;
+    }
+
+    /**
+     * Computes every cell's distance to its nearest positive cell and tallies them
+     *
+     * @param mask positive cells of the grid
+     * @return the histogram of distances
+     */
+    public static DistanceHistogram of(PositiveMask mask) {
+        if (mask.rows() == 0 || mask.cols() == 0 || mask.positiveCount() == 0) return new DistanceHistogram(new long[0]);
+
+        // No cell can be further than rows + cols - 2 from a positive cell
+        long[] cumulative = new long[mask.rows() + mask.cols() - 1];
+        for (int distance : DistanceTransform.distances(mask)) {
+            cumulative[distance]++;
+        }
+        for (int d = 1; d < cumulative.length; d++) {
+            cumulative[d] += cumulative[d - 1];
+        }
+
+        return new DistanceHistogram(cumulative);
+    }
+
+    /**
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public long countWithin(int n) {
+        if (n < 0 || cumulative.length == 0) return 0;
+        return cumulative[Math.min(n, cumulative.length - 1)];
+    }
+
+    /**
+     * @return counts for each of the thresholds, in the same order
+     */
+    public long[] countsWithin(int[] thresholds) {
+        long[] counts = new long[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            counts[i] = countWithin(thresholds[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,89 @@
+package org.ga;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * How the distance between a cell and a positive cell is measured. Each metric is counted by
+ * its own specialized algorithm rather than a search with a pluggable step, see
+ * GridCellNeighbors.findTotalCellCountWithinRange(cells, n, metric).
+ */
+public enum DistanceMetric {
+
+    /**
+     * |dy| + |dx|, cells reached in n steps up, down, left or right. The original metric,
+     * counted with diamond_union
+     */
+    MANHATTAN {
+        @Override
+        long count(PositiveCells cells, int n) {
+            return DiamondUnion.count(cells, n);
+        }
+
+        @Override
+        boolean reaches(long dy, long dx, int n) {
+            return Math.abs(dy) + Math.abs(dx) <= n;
+        }
+    },
+
+    /**
+     * max(|dy|, |dx|), cells reached in n steps that may also go diagonally, i.e. a square of
+     * side 2n+1 around each positive. Counted by separable row then column dilation
+     */
+    CHEBYSHEV {
+        @Override
+        long count(PositiveCells cells, int n) {
+            return ChebyshevDilation.count(cells, n);
+        }
+
+        @Override
+        boolean reaches(long dy, long dx, int n) {
+            return Math.max(Math.abs(dy), Math.abs(dx)) <= n;
+        }
+    },
+
+    /**
+     * sqrt(dy^2 + dx^2), a disk of radius n around each positive. Counted with an exact
+     * Euclidean distance transform
+     */
+    EUCLIDEAN {
+        @Override
+        long count(PositiveCells cells, int n) {
+            return EuclideanTransform.count(cells, n);
+        }
+
+        @Override
+        boolean reaches(long dy, long dx, int n) {
+            return dy * dy + dx * dx <= (long) n * n;
+        }
+    };
+
+    /**
+     * @param cells positive cells of the grid
+     * @param n Maximum distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    abstract long count(PositiveCells cells, int n);
+
+    /**
+     * @return true if a cell dy rows and dx columns away from a positive is within distance n of it
+     */
+    abstract boolean reaches(long dy, long dx, int n);
+
+    /**
+     * Looks up a metric by name, ignoring case
+     *
+     * @param name of the metric, e.g. "chebyshev"
+     * @return the matching metric
+     */
+    public static DistanceMetric fromName(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT);
+        for (DistanceMetric metric : values()) {
+            if (metric.name().equals(normalized)) return metric;
+        }
+
+        throw new IllegalArgumentException("Unknown metric " + name + ". Expected one of " +
+                Arrays.stream(values()).map(metric -> metric.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,133 @@
+package org.ga;
+
+import java.util.Arrays;
+
+/**
+ * Counts the cells within a Euclidean distance of any positive cell with Meijster's exact
+ * distance transform, so a cell is covered when dy^2 + dx^2 <= n^2 for some positive.
+ *
+ * 1. Rows are swept top to bottom keeping, per column, the nearest positive at or above the
+ *    row and the nearest at or below it. Together they give g(x), the vertical distance from
+ *    the cell to the nearest positive in its column. Columns are scanned for the next positive
+ *    below at most once each, so this costs O(rows x cols) over the whole sweep
+ * 2. Each row's squared distance is min over x' of (x - x')^2 + g(x')^2, the lower envelope of one
+ *    parabola per column. It's built left to right with integer arithmetic and read back right
+ *    to left. Columns with g > n can't reach any cell within n and are left out
+ *
+ * Runs in O(rows x cols) however large n is, keeping only a few int arrays of one row each.
+ */
+final class EuclideanTransform {
+
+    /**
+     * Column has no positive within n rows of the current row
+     */
+    private static final int NONE = -1;
+
+    private EuclideanTransform() {
+    }
+
+    /**
+     * @param cells positive cells of the grid
+     * @param n Maximum Euclidean distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    static long count(PositiveCells cells, int n) {
+        int rows = cells.rows();
+        int cols = cells.cols();
+        if (n < 0 || rows == 0 || cols == 0) return 0;
+
+        long radiusSquared = (long) n * n;
+        int[] above = new int[cols];     // Nearest positive row at or above y, or NONE
+        int[] below = new int[cols];     // Nearest positive row at or below y, or NONE
+        int[] scannedTo = new int[cols]; // Rows before this were already searched for 'below'
+        int[] g = new int[cols];         // Vertical distance to the nearest positive in the column, or NONE if more than n
+        int[] sites = new int[cols];     // Columns whose parabolas make up the lower envelope
+        int[] starts = new int[cols];    // First x at which each envelope parabola is the lowest
+        Arrays.fill(above, NONE);
+        Arrays.fill(below, NONE);
+
+        long covered = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) above[x] = y;
+
+            boolean anyInRange = false;
+            for (int x = 0; x < cols; x++) {
+                if (below[x] < y) below[x] = nextPositiveBelow(cells, x, y, n, scannedTo);
+
+                long vertical = Long.MAX_VALUE;
+                if (above[x] != NONE) vertical = y - above[x];
+                if (below[x] != NONE) vertical = Math.min(vertical, below[x] - y);
+                g[x] = vertical <= n ? (int) vertical : NONE;
+                anyInRange |= g[x] != NONE;
+            }
+
+            if (anyInRange) covered += countRow(g, cols, radiusSquared, sites, starts);
+        }
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        return covered;
+    }
+
+    /**
+     * Searches column x from row y for a positive at most n rows below, never searching a row twice
+     *
+     * @return the row of the positive, or NONE
+     */
+    private static int nextPositiveBelow(PositiveCells cells, int x, int y, int n, int[] scannedTo) {
+        int from = Math.max(scannedTo[x], y);
+        int to = (int) Math.min(cells.rows(), (long) y + n + 1);
+        for (int row = from; row < to; row++) {
+            if (cells.isPositive(row, x)) {
+                scannedTo[x] = row + 1;
+                return row;
+            }
+        }
+
+        scannedTo[x] = Math.max(from, to);
+        return NONE;
+    }
+
+    /**
+     * Counts the cells of a row whose squared distance to the nearest positive is at most radiusSquared
+     */
+    private static long countRow(int[] g, int cols, long radiusSquared, int[] sites, int[] starts) {
+        int top = -1;
+        for (int u = 0; u < cols; u++) {
+            if (g[u] == NONE) continue;
+
+            while (top >= 0 && distanceSquared(starts[top], sites[top], g) > distanceSquared(starts[top], u, g)) top--;
+            if (top < 0) {
+                top = 0;
+                sites[0] = u;
+                starts[0] = 0;
+            } else {
+                long start = 1 + separation(sites[top], u, g);
+                if (start < cols) {
+                    top++;
+                    sites[top] = u;
+                    starts[top] = (int) start;
+                }
+            }
+        }
+
+        long covered = 0;
+        for (int x = cols - 1; x >= 0; x--) {
+            if (distanceSquared(x, sites[top], g) <= radiusSquared) covered++;
+            if (x == starts[top]) top--;
+        }
+        return covered;
+    }
+
+    private static long distanceSquared(int x, int site, int[] g) {
+        long dx = x - site;
+        return dx * dx + (long) g[site] * g[site];
+    }
+
+    /**
+     * @return the last x at which the parabola of column i is at most that of column u, for i < u
+     */
+    private static long separation(int i, int u, int[] g) {
+        long numerator = (long) u * u - (long) i * i + (long) g[u] * g[u] - (long) g[i] * g[i];
+        return Math.floorDiv(numerator, 2L * (u - i));
+    }
+}
@@ -0,0 +1,102 @@
+package org.ga;
+
+/**
+ * Allocation free multi-source breadth first search. Cells are packed as y * width + x
+ * into an int ring buffer and visited cells are tracked in a long bitset, so no
+ * objects are created per cell. Every cell is enqueued at most once because it's marked
+ * visited when first discovered rather than when polled.
+ */
+final class FrontierBfs {
+
+    private FrontierBfs() {
+    }
+
+    /**
+     * Computes the same count as GridCellNeighbors.findTotalCellCountWithinRange
+     *
+     * @param mask positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    static int count(PositiveMask mask, int n) {
+        return (int) countRows(mask, n, 0, mask.rows());
+    }
+
+    /**
+     * Counts covered cells in rows [fromRow, toRow). The search only reads the halo
+     * of n rows above and below the band, since no shortest path from a positive
+     * further away can reach it within n steps.
+     *
+     * @param mask positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of cells in the band within distance n of any positive cell
+     */
+    static long countRows(PositiveMask mask, int n, int fromRow, int toRow) {
+        if (n < 0 || fromRow >= toRow || mask.cols() == 0) return 0;
+
+        int top = (int) Math.max(0, (long) fromRow - n);
+        int bottom = (int) Math.min(mask.rows(), (long) toRow + n);
+        int height = bottom - top;
+        int width = mask.cols();
+        if ((long) height * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid with " + height + "x" + width + " cells is too large for packed int indices");
+        }
+
+        long[] visited = Bits.newBitset((long) height * width);
+        IntRingBuffer frontier = new IntRingBuffer(Math.max(height, width));
+
+        // Seed the frontier with every positive cell at distance 0, a mask word at a time
+        long[] words = mask.words();
+        int wordsPerRow = mask.wordsPerRow();
+        for (int y = 0; y < height; y++) {
+            int wordStart = (top + y) * wordsPerRow;
+            int rowStart = y * width;
+            for (int w = 0; w < wordsPerRow; w++) {
+                for (long word = words[wordStart + w]; word != 0; word &= word - 1) {
+                    int index = rowStart + (w << 6) + Long.numberOfTrailingZeros(word);
+                    visited[index >>> 6] |= 1L << index;
+                    frontier.add(index);
+                }
+            }
+        }
+
+        // Expand one distance level at a time until the threshold is reached or nothing is left to expand
+        long skipped = 0; // Neighbors found visited already, only tallied when metrics are enabled
+        for (int distance = 0; distance < n && !frontier.isEmpty(); distance++) {
+            for (int remaining = frontier.size(); remaining > 0; remaining--) {
+                int index = frontier.poll();
+                int y = index / width;
+                int x = index - y * width;
+
+                if (y > 0 && !visit(index - width, visited, frontier) && Metrics.ENABLED) skipped++;
+                if (x > 0 && !visit(index - 1, visited, frontier) && Metrics.ENABLED) skipped++;
+                if (x < width - 1 && !visit(index + 1, visited, frontier) && Metrics.ENABLED) skipped++;
+                if (y < height - 1 && !visit(index + width, visited, frontier) && Metrics.ENABLED) skipped++;
+            }
+        }
+
+        long covered = Bits.countRange(visited, (long) (fromRow - top) * width, (long) (toRow - top) * width);
+        if (Metrics.ENABLED) {
+            // Every visited cell of the searched rows was enqueued exactly once
+            Metrics.add(Metrics.Counter.CELLS_ENQUEUED, Bits.countRange(visited, 0, (long) height * width));
+            Metrics.add(Metrics.Counter.DUPLICATE_ENQUEUES_SKIPPED, skipped);
+            Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        }
+        return covered;
+    }
+
+    /**
+     * Marks a cell visited and enqueues it if it hasn't been seen yet
+     *
+     * @return false if the cell was already visited
+     */
+    private static boolean visit(int index, long[] visited, IntRingBuffer frontier) {
+        long bit = 1L << index;
+        int word = index >>> 6;
+        if ((visited[word] & bit) != 0) return false;
+
+        visited[word] |= bit;
+        frontier.add(index);
+        return true;
+    }
+}
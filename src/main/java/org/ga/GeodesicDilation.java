@@ -0,0 +1,79 @@
+package org.ga;
+
+import java.util.stream.IntStream;
+
+/**
+ * Counts the cells a positive cell can reach in at most n steps up, down, left or right without
+ * stepping onto a wall. Walls aren't covered and coverage spreads around them, so the diamonds
+ * and distance transforms of the other engines don't apply.
+ *
+ * The search is a BitFrontier over the cells that aren't walls, growing 64 cells per long
+ * operation and stopping as soon as a level reaches no new cells.
+ */
+final class GeodesicDilation {
+
+    private GeodesicDilation() {
+    }
+
+    /**
+     * @param positives positive cells of the grid, never walls themselves
+     * @param walls cells coverage can't enter or pass through, the same size as positives
+     * @param n Maximum number of steps from any positive cell
+     * @return Count of unique cells reachable within n steps of any positive cell
+     */
+    static long count(PositiveMask positives, PositiveMask walls, int n) {
+        return count(positives, walls, new int[]{n})[0];
+    }
+
+    /**
+     * Counts many thresholds with a single search, recording the count as each is passed
+     *
+     * @param thresholds Maximum numbers of steps, in any order and none negative
+     * @return Count of unique cells reachable within each threshold, in the same order as thresholds
+     */
+    static long[] count(PositiveMask positives, PositiveMask walls, int[] thresholds) {
+        if (positives.rows() != walls.rows() || positives.cols() != walls.cols()) {
+            throw new IllegalArgumentException("Walls of " + walls.rows() + "x" + walls.cols() + " don't match a grid of " + positives.rows() + "x" + positives.cols());
+        }
+
+        long[] passable = passable(walls);
+        BitFrontier search = new BitFrontier(positives.words(), positives.rows(), positives.wordsPerRow(), passable);
+
+        int[] order = sortedThresholds(thresholds);
+        long[] counts = new long[thresholds.length];
+        boolean growing = true;
+        int recorded = 0;
+        for (long level = 0; recorded < order.length; level++) {
+            // Every threshold at this level, or any level once nothing more can be reached, gets the count so far
+            while (recorded < order.length && (thresholds[order[recorded]] <= level || !growing)) {
+                counts[order[recorded++]] = search.covered();
+            }
+            if (recorded < order.length) growing = search.step();
+        }
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, search.covered());
+        return counts;
+    }
+
+    /**
+     * @return bits of the cells that aren't walls, with the padding past the last column of each row clear
+     */
+    private static long[] passable(PositiveMask walls) {
+        long[] passable = BitFrontier.allPassable(walls.rows(), walls.cols());
+        long[] words = walls.words();
+        for (int i = 0; i < words.length; i++) passable[i] &= ~words[i];
+        return passable;
+    }
+
+    /**
+     * @return indices of thresholds, smallest threshold first
+     */
+    private static int[] sortedThresholds(int[] thresholds) {
+        for (int threshold : thresholds) {
+            if (threshold < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+        }
+        return IntStream.range(0, thresholds.length).boxed()
+                .sorted((a, b) -> Integer.compare(thresholds[a], thresholds[b]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+}
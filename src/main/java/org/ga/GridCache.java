@@ -0,0 +1,175 @@
+package org.ga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Positive masks of grid files kept in memory between queries, keyed by path and last
+ * modified time so an edited file is loaded again. Least recently used grids are evicted
+ * once the masks take more than maxBytes. Each grid is loaded by a single thread while
+ * others asking for it wait, and counts already computed for a grid are memoized.
+ *
+ * Thread safe.
+ */
+final class GridCache {
+
+    /**
+     * Counts kept per cache, each only a few dozen bytes
+     */
+    private static final int MAX_RESULTS = 100_000;
+
+    @FunctionalInterface
+    interface Loader {
+        PositiveMask load(Path path) throws IOException;
+    }
+
+    private record GridKey(Path path, FileTime modified) {
+    }
+
+    private record ResultKey(GridKey grid, int n, CountingEngine engine) {
+    }
+
+    private final long maxBytes;
+    private final Loader loader;
+    private final LinkedHashMap<GridKey, CompletableFuture<PositiveMask>> grids = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ResultKey, Long> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ResultKey, Long> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+    private long bytes;
+
+    GridCache(long maxBytes, Loader loader) {
+        this.maxBytes = maxBytes;
+        this.loader = loader;
+    }
+
+    /**
+     * Counts cells within distance n of any positive cell of a grid file, loading the grid
+     * unless it's cached and computing the count unless it's memoized
+     *
+     * @param path csv or binary grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @param engine strategy used to do the counting
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    long count(Path path, int n, CountingEngine engine) throws IOException {
+        GridKey gridKey = keyOf(path);
+        ResultKey resultKey = new ResultKey(gridKey, n, engine);
+        synchronized (this) {
+            Long count = results.get(resultKey);
+            if (count != null) return count;
+        }
+
+        long count = engine.countCells(grid(gridKey), n);
+        synchronized (this) {
+            results.put(resultKey, count);
+        }
+        return count;
+    }
+
+    /**
+     * @return the positive cells of a grid file, loaded now unless already cached
+     */
+    PositiveMask grid(Path path) throws IOException {
+        return grid(keyOf(path));
+    }
+
+    private PositiveMask grid(GridKey key) throws IOException {
+        CompletableFuture<PositiveMask> future;
+        boolean loadHere = false;
+        synchronized (this) {
+            future = grids.get(key);
+            if (future == null) {
+                // Drop older versions of the file, they can't be asked for again
+                grids.entrySet().removeIf(cached -> cached.getKey().path().equals(key.path()) && isLoaded(cached.getValue()));
+                future = new CompletableFuture<>();
+                grids.put(key, future);
+                loadHere = true;
+            }
+        }
+
+        if (loadHere) {
+            try {
+                PositiveMask mask = loader.load(key.path());
+                synchronized (this) {
+                    future.complete(mask);
+                    evict();
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    grids.remove(key, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof IOException ioe) throw ioe;
+            if (ce.getCause() instanceof UncheckedIOException uioe) throw uioe.getCause();
+            if (ce.getCause() instanceof RuntimeException re) throw re;
+            throw ce;
+        }
+    }
+
+    /**
+     * @return the number of grids held in memory
+     */
+    synchronized int gridCount() {
+        return (int) grids.values().stream().filter(GridCache::isLoaded).count();
+    }
+
+    /**
+     * @return bytes taken by the cached masks
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Recomputes the bytes held and evicts least recently used grids until they fit,
+     * always keeping the most recent one
+     */
+    private void evict() {
+        bytes = 0;
+        for (CompletableFuture<PositiveMask> future : grids.values()) {
+            if (isLoaded(future)) bytes += sizeOf(future.join());
+        }
+
+        Iterator<CompletableFuture<PositiveMask>> eldestFirst = grids.values().iterator();
+        int remaining = grids.size();
+        while (bytes > maxBytes && remaining > 1 && eldestFirst.hasNext()) {
+            CompletableFuture<PositiveMask> future = eldestFirst.next();
+            remaining--;
+            if (!isLoaded(future)) continue; // Still loading on another thread
+
+            bytes -= sizeOf(future.join());
+            eldestFirst.remove();
+        }
+    }
+
+    private static boolean isLoaded(CompletableFuture<PositiveMask> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private static long sizeOf(PositiveMask mask) {
+        return (long) mask.words().length * Long.BYTES;
+    }
+
+    private static GridKey keyOf(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath().normalize();
+        return new GridKey(absolute, Files.getLastModifiedTime(absolute));
+    }
+}
@@ -1,17 +1,28 @@
 package org.ga;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Goal: Given a 2D Grid and a distance threshold N, find the number of neighboring
@@ -27,64 +38,329 @@ public class GridCellNeighbors {
      * 3. Validate grid
      * 4. Call findTotalCellCountWithinRange to find neighbors of positives
      *
-     * @param args distance threshold 'n', path to csv file
+     * Options:
+     * --engine=name picks a CountingEngine instead of the legacy breadth first search
+     * --parallel[=threads] counts row bands in parallel, using diamond_union unless --engine is given
+     * --streaming counts while reading the csv without holding the grid in memory or printing it
+     * --sparse keeps only the positive cells in memory and counts them with diamond_union unless --engine is given
+     * --offheap holds the grid's values outside the heap, mapping binary grids in, and counts them with diamond_union unless --engine is given
+     * --metric=chebyshev|euclidean measures distance as squares or disks instead of Manhattan diamonds
+     * --walls treats negative cells as walls that coverage has to walk around
+     * --format=json|tsv skips the grid echo and prints one line per distance with the count, grid size and timings
+     * --convert [--mask] takes a csv path and an output path instead, and writes the csv as a binary grid
+     * --serve[=port] [--cache-mb=size] [--threads=count] takes no arguments and answers count queries over HTTP instead
+     * --batch [--distance=list] [--readers=count] [--threads=count] takes a directory of grids or a manifest of path,N
+     *   lines and an output path instead, and writes every count to that one file
+     * --frames=path|- prints the count for the grid, then applies each line of y,x,value changes read from
+     *   the file or stdin and prints the updated count, in time that depends on the changes rather than the grid
+     *
+     * The grid may also be a binary grid (.gcnb) written by --convert. Binary grids that only store
+     * a positive mask aren't printed and are counted with frontier_bfs unless --engine is given.
+     *
+     * The distance may also be a comma separated list of distances and ranges, e.g. 0-500 or 1,5,10,
+     * in which case one count is printed per distance, all from a single distance transform.
+     *
+     * Starting the JVM with -Dorg.ga.metrics=true prints counters and phase timings to stderr, see Metrics.
+     *
+     * @param args distance threshold 'n', path to csv or binary grid file, followed by any options
      */
     public static void main(String[] args) {
+        CliOptions options = CliOptions.parse(args);
+        List<String> positionals = options.positionals();
+
+        if (options.has("convert")) {
+            convertCsvToBinary(positionals, options.has("mask"));
+            return;
+        }
+
+        if (options.has("serve")) {
+            serve(options);
+            return;
+        }
 
-        if (args.length != 2) {
+        if (options.has("batch")) {
+            batch(positionals, options);
+            return;
+        }
+
+        if (options.has("frames")) {
+            frames(positionals, options);
+            return;
+        }
+
+        if (positionals.size() != 2) {
             throw new IllegalArgumentException("Expected exactly 2 Arguments: " +
                     "An integer N representing the max Manhattan distance from any positive cell and " +
                     "A path to a csv file with a 2D grid of signed integers");
         }
 
         try {
-            // Validate Distance is Positive
-            int distanceThreshold = Integer.parseInt(args[0]);
-            if (distanceThreshold < 0) {
+            // Validate Distances are Positive
+            int[] distanceThresholds = CliOptions.parseDistances(positionals.get(0));
+            if (Arrays.stream(distanceThresholds).anyMatch(threshold -> threshold < 0)) {
                 throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
             }
+            int distanceThreshold = distanceThresholds[0];
+            boolean manyThresholds = distanceThresholds.length > 1;
 
             // Validate CSV isn't blank and has correct ending
-            String gridPath = args[1];
-            validateCsvFilepath(gridPath);
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(gridPath))) {
-                List<int[]> rows = new ArrayList<>();
-                String line;
-
-                // Parse grid one row at a time, removing whitespace and blank values
-                while ((line = reader.readLine()) != null) {
-                    String[] tokens = line.replaceAll("\\s", "").split(",");
-
-                    // Filter out blank values and map line into int array
-                    int[] row = Arrays.stream(tokens)
-                            .filter(s -> !s.isBlank())
-                            .mapToInt(Integer::parseInt)
-                            .toArray();
-
-                    if (row.length > 0) rows.add(row); // Only add rows that have non-blank values
+            String gridPath = positionals.get(1);
+            validateGridFilepath(gridPath);
+            boolean binaryGrid = gridPath.endsWith(BinaryGridFormat.EXTENSION);
+
+            // Validate options
+            CountingEngine engine = options.has("engine") ? CountingEngine.fromName(options.get("engine")) : null;
+            int parallelism = options.getInt("parallel", ForkJoinPool.getCommonPoolParallelism());
+            if (parallelism < 1) throw new IllegalArgumentException("Expected --parallel to be at least 1 but found " + parallelism);
+            if (binaryGrid && options.has("streaming")) throw new IllegalArgumentException("--streaming only reads csv grids");
+            if (manyThresholds && options.has("streaming")) throw new IllegalArgumentException("--streaming only counts a single distance");
+            if (options.has("sparse") && options.has("streaming")) throw new IllegalArgumentException("--streaming and --sparse can't be used together");
+            if (options.has("offheap") && (options.has("streaming") || options.has("sparse"))) {
+                throw new IllegalArgumentException("--offheap can't be used with --streaming or --sparse");
+            }
+            DistanceMetric metric = options.has("metric") ? DistanceMetric.fromName(options.get("metric")) : DistanceMetric.MANHATTAN;
+            boolean manhattan = metric == DistanceMetric.MANHATTAN;
+            if (!manhattan && (engine != null || options.has("parallel") || options.has("streaming"))) {
+                throw new IllegalArgumentException("--metric " + options.get("metric") + " has its own algorithm and can't be used with --engine, --parallel or --streaming");
+            }
+            boolean walls = options.has("walls");
+            if (walls && (engine != null || options.has("parallel") || options.has("streaming") || options.has("sparse") || options.has("offheap") || !manhattan)) {
+                throw new IllegalArgumentException("--walls has its own search and can't be used with --engine, --parallel, --streaming, --sparse, --offheap or --metric");
+            }
+            OutputFormat format = options.has("format") ? OutputFormat.fromName(options.get("format")) : OutputFormat.TEXT;
+            if (!format.isVerbose() && options.has("streaming")) throw new IllegalArgumentException("--format only reports grids loaded in memory, not --streaming");
+
+            // One pool for every distance counted, shut down once they all are
+            ForkJoinPool pool = options.has("parallel") ? new ForkJoinPool(parallelism) : null;
+            try {
+                if (options.has("streaming")) {
+                    // Count while reading so the grid is never held in memory
+                    try (BufferedReader reader = new BufferedReader(new FileReader(gridPath))) {
+                        long count = findTotalCellCountWithinRangeStreaming(reader, distanceThreshold);
+                        System.out.println(count + " Neighbors within a manhattan distance of " + distanceThreshold);
+                    }
+                    return;
                 }
 
-                // Validate Grid isn't empty and has equal row lengths
-                int[][] grid = rows.toArray(new int[rows.size()][]);
-                validateGrid(grid);
-
-                // Print output
-                System.out.println("Grid Successfully Parsed:");
-                Arrays.stream(grid).map(Arrays::toString).forEach(System.out::println);
-
-                // Call findTotalCellCountWithinRange, entry point of program
-                System.out.println(findTotalCellCountWithinRange(grid, distanceThreshold) + " Neighbors within a manhattan distance of " + distanceThreshold);
+                // Load the grid with the backend the options pick, then count and report it the same way whatever that was
+                long parseStart = System.nanoTime();
+                LoadedGrid loaded;
+                if (options.has("sparse")) {
+                    // Memory grows with the positives only, so huge mostly empty grids fit
+                    SparseGrid sparse = binaryGrid ? BinaryGridFormat.readSparse(Path.of(gridPath)) : SparseGrid.readCsv(Path.of(gridPath));
+                    long parseNanos = System.nanoTime() - parseStart;
+                    if (Metrics.ENABLED) Metrics.addPhase(Metrics.Phase.PARSE, parseNanos);
+                    loaded = LoadedGrid.ofCells(sparse, CountingEngine.DIAMOND_UNION, parseNanos);
+                    if (format.isVerbose()) {
+                        System.out.println("Sparse grid of " + sparse.rows() + "x" + sparse.cols() + " with " + sparse.positiveCount() + " positive cells loaded");
+                    }
+                } else if (options.has("offheap")) {
+                    // Cells stay out of the heap, an int binary grid is mapped in rather than copied
+                    if (binaryGrid && BinaryGridFormat.readEncoding(Path.of(gridPath)) == BinaryGridFormat.Encoding.POSITIVE_MASK) {
+                        throw new IllegalArgumentException("--offheap holds cell values but " + gridPath + " only stores which cells are positive. Use --engine=segmented_bfs to count it off heap");
+                    }
+                    OffHeapGrid offHeap = binaryGrid ? BinaryGridFormat.mapGrid(Path.of(gridPath)) : OffHeapGrid.readCsv(Path.of(gridPath));
+                    long parseNanos = System.nanoTime() - parseStart;
+                    if (Metrics.ENABLED) Metrics.addPhase(Metrics.Phase.PARSE, parseNanos);
+                    loaded = LoadedGrid.ofCells(offHeap, CountingEngine.SEGMENTED_BFS, parseNanos);
+                    if (format.isVerbose()) System.out.println("Off heap grid of " + offHeap.rows() + "x" + offHeap.cols() + " loaded");
+                } else if (binaryGrid && BinaryGridFormat.readEncoding(Path.of(gridPath)) == BinaryGridFormat.Encoding.POSITIVE_MASK) {
+                    if (walls) throw new IllegalArgumentException("--walls needs the values of the grid but " + gridPath + " only stores which cells are positive");
+
+                    // Only positives are stored, so there are no values to print. segmented_bfs keeps
+                    // the mask off heap, so grids of more than 2^31 cells can be loaded and counted
+                    PositiveCells mask = engine == CountingEngine.SEGMENTED_BFS
+                            ? BinaryGridFormat.readSegmentedMask(Path.of(gridPath))
+                            : BinaryGridFormat.readMask(Path.of(gridPath));
+                    long parseNanos = System.nanoTime() - parseStart;
+                    if (Metrics.ENABLED) Metrics.addPhase(Metrics.Phase.PARSE, parseNanos);
+                    loaded = LoadedGrid.ofCells(mask, CountingEngine.FRONTIER_BFS, parseNanos);
+                    if (format.isVerbose()) System.out.println("Positive mask of " + mask.rows() + "x" + mask.cols() + " grid loaded");
+                } else {
+                    // Memory map the csv and scan its bytes straight into rows, removing whitespace and blank values
+                    int[][] grid = binaryGrid ? BinaryGridFormat.readGrid(Path.of(gridPath)) : MappedCsvParser.parse(Path.of(gridPath));
+
+                    // Validate Grid isn't empty and has equal row lengths
+                    long validateStart = System.nanoTime();
+                    validateGrid(grid);
+                    long parseNanos = System.nanoTime() - parseStart;
+                    loaded = LoadedGrid.ofValues(grid, parseNanos);
+                    if (Metrics.ENABLED) {
+                        Metrics.addPhase(Metrics.Phase.PARSE, validateStart - parseStart);
+                        Metrics.addPhase(Metrics.Phase.VALIDATE, System.nanoTime() - validateStart);
+                    }
+
+                    // Print output, unless a machine readable format was asked for
+                    if (format.isVerbose()) {
+                        System.out.println("Grid Successfully Parsed:");
+                        Arrays.stream(grid).map(Arrays::toString).forEach(System.out::println);
+                    }
+                }
 
+                loaded.countAndReport(distanceThresholds, new LoadedGrid.Options(engine, metric, walls, pool, format));
             } catch (FileNotFoundException fnfe) {
                 throw new IllegalArgumentException(fnfe.getMessage());
+            } catch (NoSuchFileException nsfe) {
+                throw new IllegalArgumentException(nsfe.getFile() + " (No such file or directory)");
             } catch (NumberFormatException nfe) {
                 throw new IllegalArgumentException("Expected csv with only numbers separated by commas but failed to parse: " + nfe.getMessage());
             } catch (IOException ioe) {
                 throw new RuntimeException("Error Parsing grid. Make sure your csv has only numbers separated by commas. Make sure each row is on a separated line");
+            } finally {
+                if (pool != null) pool.shutdown();
             }
         } catch (NumberFormatException nfe) {
             throw new IllegalArgumentException("Expected max Manhattan distance as an integer but failed to parse: " + nfe.getMessage());
+        } finally {
+            if (Metrics.ENABLED) System.err.println(Metrics.summary());
+        }
+    }
+
+    /**
+     * Starts a GridQueryServer on localhost that keeps running after main returns
+     */
+    private static void serve(CliOptions options) {
+        if (!options.positionals().isEmpty()) throw new IllegalArgumentException("--serve takes no arguments, grids and distances are given per query");
+
+        int port = options.getInt("serve", 8080);
+        int cacheMb = options.getInt("cache-mb", 1024);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        if (port < 0 || port > 65535) throw new IllegalArgumentException("Expected --serve to be a port from 0 to 65535 but found " + port);
+        if (cacheMb < 0) throw new IllegalArgumentException("Expected --cache-mb to be at least 0 but found " + cacheMb);
+        if (threads < 1) throw new IllegalArgumentException("Expected --threads to be at least 1 but found " + threads);
+
+        try {
+            GridQueryServer server = GridQueryServer.start(port, (long) cacheMb << 20, threads);
+            System.out.println("Serving grid queries on http://localhost:" + server.port() + "/count?grid=<path>&n=<distance>");
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error starting server: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Counts the grids of the directory or manifest at positionals[0] into the file at positionals[1]
+     */
+    private static void batch(List<String> positionals, CliOptions options) {
+        if (positionals.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly 2 Arguments with --batch: " +
+                    "A directory of grids or a manifest of path,N lines and " +
+                    "A path for the tab separated results to write");
+        }
+
+        Path input = Path.of(positionals.get(0));
+        Path out = Path.of(positionals.get(1));
+        int cores = Runtime.getRuntime().availableProcessors();
+        CountingEngine engine = options.has("engine") ? CountingEngine.fromName(options.get("engine")) : null;
+        BatchCounter counter = new BatchCounter(options.getInt("readers", Math.min(4, cores)), options.getInt("threads", cores), engine);
+
+        try {
+            List<BatchCounter.Job> jobs;
+            if (Files.isDirectory(input)) {
+                if (!options.has("distance")) throw new IllegalArgumentException("Expected --distance with the distances to count every grid of " + input + " for");
+                int[] distances = CliOptions.parseDistances(options.get("distance"));
+                if (Arrays.stream(distances).anyMatch(distance -> distance < 0)) {
+                    throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+                }
+                jobs = BatchCounter.fromDirectory(input, distances);
+            } else {
+                if (options.has("distance")) throw new IllegalArgumentException("--distance is only used with a directory, a manifest gives a distance per line");
+                jobs = BatchCounter.readManifest(input);
+            }
+
+            long start = System.nanoTime();
+            BatchCounter.Summary summary = counter.run(jobs, out);
+            System.out.println("Counted " + summary.grids() + " grids, " + summary.failed() + " failed, into " + out +
+                    " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (NoSuchFileException nsfe) {
+            throw new IllegalArgumentException(nsfe.getFile() + " (No such file or directory)");
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Expected --distance as integers but failed to parse: " + nfe.getMessage());
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error running batch: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Loads the base grid at positionals[1], then prints its count for distance positionals[0] and
+     * the count after each delta frame read from the --frames file, or stdin for "-"
+     */
+    private static void frames(List<String> positionals, CliOptions options) {
+        if (positionals.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly 2 Arguments with --frames: " +
+                    "An integer N representing the max Manhattan distance from any positive cell and " +
+                    "A path to the base grid the frames change");
+        }
+
+        int distanceThreshold;
+        try {
+            distanceThreshold = Integer.parseInt(positionals.get(0).trim());
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Expected max Manhattan distance as an integer but failed to parse: " + nfe.getMessage());
+        }
+
+        try {
+            if (distanceThreshold < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+            String gridPath = positionals.get(1);
+            validateGridFilepath(gridPath);
+            String frames = options.get("frames");
+            if (frames == null || frames.isBlank()) throw new IllegalArgumentException("Expected --frames to be a path to a file of delta frames, or - for stdin");
+
+            CoverageIndex index;
+            if (gridPath.endsWith(BinaryGridFormat.EXTENSION) && BinaryGridFormat.readEncoding(Path.of(gridPath)) == BinaryGridFormat.Encoding.POSITIVE_MASK) {
+                index = CoverageIndex.of(BinaryGridFormat.readMask(Path.of(gridPath)), distanceThreshold);
+            } else {
+                int[][] grid = gridPath.endsWith(BinaryGridFormat.EXTENSION) ? BinaryGridFormat.readGrid(Path.of(gridPath)) : MappedCsvParser.parse(Path.of(gridPath));
+                validateGrid(grid);
+                index = CoverageIndex.of(grid, distanceThreshold);
+            }
+
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            out.write(index.coveredCount() + "\n");
+            if (frames.equals("-")) {
+                new DeltaFrames(index).run(new InputStreamReader(System.in, StandardCharsets.UTF_8), out);
+            } else {
+                try (Reader in = Files.newBufferedReader(Path.of(frames), StandardCharsets.UTF_8)) {
+                    new DeltaFrames(index).run(in, out);
+                }
+            }
+        } catch (NoSuchFileException nsfe) {
+            throw new IllegalArgumentException(nsfe.getFile() + " (No such file or directory)");
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Expected csv with only numbers separated by commas but failed to parse: " + nfe.getMessage());
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error reading frames: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Writes the csv grid at positionals[0] as a binary grid at positionals[1]
+     *
+     * @param mask true to only store which cells are positive
+     */
+    private static void convertCsvToBinary(List<String> positionals, boolean mask) {
+        if (positionals.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly 2 Arguments with --convert: " +
+                    "A path to a csv file with a 2D grid of signed integers and " +
+                    "A path for the binary grid to write");
+        }
+
+        String csvPath = positionals.get(0);
+        String binaryPath = positionals.get(1);
+        validateCsvFilepath(csvPath);
+        if (!binaryPath.endsWith(BinaryGridFormat.EXTENSION)) {
+            throw new IllegalArgumentException("Expected binary grid path to end with " + BinaryGridFormat.EXTENSION + " but found " + binaryPath);
+        }
+
+        try {
+            BinaryGridFormat.convertCsv(Path.of(csvPath), Path.of(binaryPath),
+                    mask ? BinaryGridFormat.Encoding.POSITIVE_MASK : BinaryGridFormat.Encoding.INT32);
+            System.out.println("Converted " + csvPath + " to " + binaryPath);
+        } catch (NoSuchFileException nsfe) {
+            throw new IllegalArgumentException(nsfe.getFile() + " (No such file or directory)");
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Expected csv with only numbers separated by commas but failed to parse: " + nfe.getMessage());
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error converting grid: " + ioe.getMessage());
         }
     }
 
@@ -100,6 +376,17 @@ public class GridCellNeighbors {
         if (!path.endsWith(".csv")) throw new IllegalArgumentException("Expected a csv file but found path given was " + path);
     }
 
+    /**
+     * Validates that path to a grid isn't blank and that the file is a csv or binary grid
+     * Throws Illegal Argument Exceptions if validation fails
+     *
+     * @param path to csv or binary grid as a String
+     */
+    private static void validateGridFilepath(String path) {
+        if (path.endsWith(BinaryGridFormat.EXTENSION)) return;
+        validateCsvFilepath(path);
+    }
+
     /**
      *
      * Validates grid parsed from specified csv has at least 1 row and that all rows
@@ -135,21 +422,301 @@ public class GridCellNeighbors {
         // Positive cells include themselves in their neighborhood.
         Queue<GridCoordinate> neighboringCells = new LinkedList<>(positives);
 
+        // Every cell is polled once per time it was enqueued, so polls tally enqueues
+        long polled = 0;
+        long duplicates = 0;
+
         // Add neighboring cells to set and its own neighbors to queue for processing
         while (!neighboringCells.isEmpty()) {
             GridCoordinate neighbor = neighboringCells.poll();
+            if (Metrics.ENABLED) polled++;
 
             // Neighbors already in foundNeighborSet OR lie outside distance threshold 'n' should be skipped
-            if (foundNeighborSet.contains(neighbor) || neighbor.getDistance() > n) continue;
+            if (foundNeighborSet.contains(neighbor) || neighbor.getDistance() > n) {
+                if (Metrics.ENABLED && foundNeighborSet.contains(neighbor)) duplicates++;
+                continue;
+            }
 
             // Mark we've processed current cell and it's direct neighbors for processing
             foundNeighborSet.add(neighbor);
             addAdjacentNeighbors(grid, neighbor, neighboringCells);
         }
 
+        if (Metrics.ENABLED) {
+            Metrics.add(Metrics.Counter.CELLS_ENQUEUED, polled);
+            Metrics.add(Metrics.Counter.DUPLICATE_ENQUEUES_SKIPPED, duplicates);
+            Metrics.add(Metrics.Counter.CELLS_COVERED, foundNeighborSet.size());
+        }
+
         return foundNeighborSet.size(); // For now, we only want the count
     }
 
+    /**
+     * Computes the same count as findTotalCellCountWithinRange(grid, n) using the given engine
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell
+     * @param engine strategy used to do the counting
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public static int findTotalCellCountWithinRange(int[][] grid, int n, CountingEngine engine) {
+        return engine.count(grid, n);
+    }
+
+    /**
+     * Computes the same count as findTotalCellCountWithinRange for a grid given by its positive cells
+     *
+     * @param mask positive cells of the grid, e.g. loaded from a binary grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @param engine strategy used to do the counting
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public static int findTotalCellCountWithinRange(PositiveMask mask, int n, CountingEngine engine) {
+        return engine.count(mask, n);
+    }
+
+    /**
+     * Computes the same count as findTotalCellCountWithinRange for a grid given by any representation
+     * of its positive cells, such as a SparseGrid too large to hold as int[][]
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @param engine strategy used to do the counting, diamond_union counts sparse grids without expanding them
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public static long findTotalCellCountWithinRange(PositiveCells cells, int n, CountingEngine engine) {
+        return engine.countCells(cells, n);
+    }
+
+    /**
+     * Counts the cells within distance n of any positive cell under another metric than Manhattan,
+     * e.g. Chebyshev squares or Euclidean disks. Each metric has its own algorithm, see DistanceMetric
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum distance from any positive cell
+     * @param metric how distance is measured
+     * @return Count of unique cells within distance n of any positive cell
+     * @throws IllegalArgumentException if n is negative
+     */
+    public static long findTotalCellCountWithinRange(PositiveCells cells, int n, DistanceMetric metric) {
+        if (n < 0) throw new IllegalArgumentException("Integer N representing the max distance from any positive cell cannot be negative");
+        return metric.count(cells, n);
+    }
+
+    /**
+     * Counts the cells reachable in at most n steps from any positive cell when negative cells are
+     * walls. Coverage spreads around walls instead of through them, and walls themselves aren't counted
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum number of steps up, down, left or right from any positive cell
+     * @return Count of unique cells reachable within n steps of any positive cell
+     */
+    public static long findTotalCellCountWithinRangeAroundWalls(int[][] grid, int n) {
+        return findTotalCellCountWithinRangeAroundWalls(grid, n, value -> value < 0);
+    }
+
+    /**
+     * Same as findTotalCellCountWithinRangeAroundWalls(grid, n) with any values as walls. Positive
+     * cells are always where coverage starts, even if isWall matches them
+     *
+     * @param isWall test of which cell values block coverage
+     * @throws IllegalArgumentException if n is negative
+     */
+    public static long findTotalCellCountWithinRangeAroundWalls(int[][] grid, int n, IntPredicate isWall) {
+        if (n < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+        return GeodesicDilation.count(PositiveMask.of(grid), PositiveMask.where(grid, isWall), n);
+    }
+
+    /**
+     * Finds which cells findTotalCellCountWithinRange(grid, n) counts, as runs of covered columns
+     * per row. Built from the union of diamonds around each positive, without a set of coordinates
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return the unique cells within distance n of any positive cell
+     */
+    public static CoverageMask findCellsWithinRange(int[][] grid, int n) {
+        return findCellsWithinRange(PositiveMask.of(grid), n);
+    }
+
+    /**
+     * Same as findCellsWithinRange(grid, n) for a grid given by any representation of its positive cells
+     *
+     * @param cells positive cells of the grid
+     */
+    public static CoverageMask findCellsWithinRange(PositiveCells cells, int n) {
+        return DiamondUnion.coverage(cells, n);
+    }
+
+    /**
+     * Finds, for every cell within distance n of a positive cell, its distance to the nearest
+     * positive and the label of that positive. Ties go to the positive first in row-major order
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return distance and label planes, UNCOVERED for cells further than n from every positive
+     */
+    public static NearestPositive findNearestPositives(int[][] grid, int n) {
+        return findNearestPositives(PositiveMask.of(grid), n);
+    }
+
+    /**
+     * Same as findNearestPositives(grid, n) for a grid given by any representation of its positive cells
+     *
+     * @param cells positive cells of the grid
+     */
+    public static NearestPositive findNearestPositives(PositiveCells cells, int n) {
+        return NearestPositive.of(PositiveMask.from(cells), n);
+    }
+
+    /**
+     * Counts cells within each positive cell's own Manhattan radius, given by its value, e.g.
+     * value -> value for a radius equal to the signal strength. Computed in two raster passes
+     * that carry the largest remaining radius, so large radii cost no more than small ones
+     *
+     * @param grid 2D grid of signed integers
+     * @param radius radius of a positive cell given its value
+     * @return Count of unique cells within the radius of any positive cell
+     * @throws IllegalArgumentException if radius returns a negative value
+     */
+    public static long findTotalCellCountWithinRadii(int[][] grid, IntUnaryOperator radius) {
+        return VariableRadiusCoverage.count(grid, radius);
+    }
+
+    /**
+     * Sums a weight layer over the cells findTotalCellCountWithinRadii(grid, radius) counts
+     *
+     * @param weights weight of every cell, the same size as grid. Pass grid itself to sum its values
+     * @return Sum of the weights of the unique cells within the radius of any positive cell
+     * @throws IllegalArgumentException if weights doesn't match the grid or radius returns a negative value
+     */
+    public static long findTotalWeightWithinRadii(int[][] grid, IntUnaryOperator radius, int[][] weights) {
+        return VariableRadiusCoverage.sum(grid, radius, weights);
+    }
+
+    /**
+     * Sums a weight layer over the cells findTotalCellCountWithinRange(grid, n) counts
+     *
+     * @param weights weight of every cell, the same size as grid
+     * @throws IllegalArgumentException if n is negative or weights doesn't match the grid
+     */
+    public static long findTotalWeightWithinRange(int[][] grid, int n, int[][] weights) {
+        if (n < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+        return VariableRadiusCoverage.sum(grid, value -> n, weights);
+    }
+
+    /**
+     * Builds an index that keeps findTotalCellCountWithinRange(grid, n) up to date as cells of the
+     * grid change, each change costing O(n^2) instead of a full recount
+     *
+     * @param grid 2D grid of signed integers, copied into the index
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return the index, see CoverageIndex.setCell
+     */
+    public static CoverageIndex indexCellsWithinRange(int[][] grid, int n) {
+        return CoverageIndex.of(grid, n);
+    }
+
+    /**
+     * Builds an index that counts the cells findTotalCellCountWithinRange(grid, n) covers within
+     * any rectangle of the grid in O(1), for viewports queried many times
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return the index, see CoverageRegionIndex.count
+     */
+    public static CoverageRegionIndex indexCoveredRegions(int[][] grid, int n) {
+        return indexCoveredRegions(PositiveMask.of(grid), n);
+    }
+
+    /**
+     * Same as indexCoveredRegions(grid, n) for a grid given by any representation of its positive cells
+     *
+     * @param cells positive cells of the grid
+     */
+    public static CoverageRegionIndex indexCoveredRegions(PositiveCells cells, int n) {
+        return CoverageRegionIndex.of(findCellsWithinRange(cells, n));
+    }
+
+    /**
+     * Computes findTotalCellCountWithinRange for many thresholds at once. The distance from every
+     * cell to its nearest positive is computed once and tallied, so each threshold costs a lookup
+     *
+     * @param grid 2D grid of signed integers
+     * @param thresholds Maximum Manhattan distances from any positive cell, in any order
+     * @return Count of unique cells within each threshold, in the same order as thresholds
+     */
+    public static int[] findTotalCellCountsWithinRanges(int[][] grid, int[] thresholds) {
+        return findTotalCellCountsWithinRanges(PositiveMask.of(grid), thresholds);
+    }
+
+    /**
+     * Same as findTotalCellCountsWithinRanges(grid, thresholds) for a grid given by its positive cells
+     *
+     * @param mask positive cells of the grid
+     */
+    public static int[] findTotalCellCountsWithinRanges(PositiveMask mask, int[] thresholds) {
+        return Arrays.stream(DistanceHistogram.of(mask).countsWithin(thresholds)).mapToInt(Math::toIntExact).toArray();
+    }
+
+    /**
+     * Computes the same count as findTotalCellCountWithinRange(grid, n) by splitting the grid
+     * into horizontal row bands that are counted in parallel on the common fork join pool
+     *
+     * @param grid 2D grid of signed integers
+     * @param n Maximum Manhattan distance from any positive cell
+     * @param engine strategy used to count each band, must support row bands
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    public static int findTotalCellCountWithinRangeInParallel(int[][] grid, int n, CountingEngine engine) {
+        return findTotalCellCountWithinRangeInParallel(grid, n, engine, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as findTotalCellCountWithinRangeInParallel(grid, n, engine), running the bands on the given pool
+     *
+     * @param pool fork join pool whose parallelism decides the number of bands
+     */
+    public static int findTotalCellCountWithinRangeInParallel(int[][] grid, int n, CountingEngine engine, ForkJoinPool pool) {
+        return findTotalCellCountWithinRangeInParallel(PositiveMask.of(grid), n, engine, pool);
+    }
+
+    /**
+     * Same as findTotalCellCountWithinRangeInParallel(grid, n, engine, pool) for a grid given by its positive cells
+     *
+     * @param mask positive cells of the grid
+     */
+    public static int findTotalCellCountWithinRangeInParallel(PositiveMask mask, int n, CountingEngine engine, ForkJoinPool pool) {
+        return Math.toIntExact(findTotalCellCountWithinRangeInParallel((PositiveCells) mask, n, engine, pool));
+    }
+
+    /**
+     * Same as findTotalCellCountWithinRangeInParallel(grid, n, engine, pool) for a grid given by any
+     * representation of its positive cells
+     *
+     * @param cells positive cells of the grid
+     */
+    public static long findTotalCellCountWithinRangeInParallel(PositiveCells cells, int n, CountingEngine engine, ForkJoinPool pool) {
+        if (!engine.supportsRowBands()) {
+            throw new IllegalArgumentException("Engine " + engine + " cannot count row bands in parallel");
+        }
+        return ParallelBands.count(cells, n, engine, pool);
+    }
+
+    /**
+     * Computes the same count as findTotalCellCountWithinRange(grid, n) while reading a csv grid
+     * row by row, keeping only the positives of the last 2n + 1 rows in memory
+     *
+     * @param csv grid with one row of comma separated integers per line
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     * @throws IOException if reading fails
+     */
+    public static long findTotalCellCountWithinRangeStreaming(Reader csv, int n) throws IOException {
+        BufferedReader reader = csv instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(csv);
+        return StreamingGridCounter.count(reader, n);
+    }
+
     /**
      * Helper function that finds all positive numbers in a 2D array of integers
      *
@@ -172,6 +739,7 @@ public class GridCellNeighbors {
             }
         }
 
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.POSITIVES_FOUND, positiveCells.size());
         return positiveCells;
     }
 
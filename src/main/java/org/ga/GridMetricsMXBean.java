@@ -0,0 +1,39 @@
+package org.ga;
+
+/**
+ * Counters and phase timers of the counting pipeline as seen over JMX, registered as
+ * org.ga:type=GridMetrics when the JVM runs with -Dorg.ga.metrics=true
+ */
+public interface GridMetricsMXBean {
+
+    long getRowsParsed();
+
+    long getTokensParsed();
+
+    long getPositivesFound();
+
+    long getCellsEnqueued();
+
+    /**
+     * @return cells a breadth first search found again after they were already found
+     */
+    long getDuplicateEnqueuesSkipped();
+
+    long getCellsCovered();
+
+    long getParseNanos();
+
+    long getValidateNanos();
+
+    long getComputeNanos();
+
+    /**
+     * @return number of counts timed by getComputeNanos
+     */
+    long getComputeCount();
+
+    /**
+     * Sets every counter and timer back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,131 @@
+package org.ga;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers count queries over HTTP on localhost, so callers don't pay JVM startup and grid
+ * parsing for every query. Grids are loaded once into a GridCache and counts are memoized.
+ *
+ * GET /count?grid=path&n=distance[&engine=name] responds with the count as plain text.
+ * Bad queries get 400, missing files 404, each with the error message as the body.
+ */
+final class GridQueryServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final GridCache cache;
+
+    private GridQueryServer(HttpServer server, ExecutorService executor, GridCache cache) {
+        this.server = server;
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    /**
+     * Starts serving on the loopback interface. Queries run on a fixed pool of platform
+     * threads, virtual threads need a newer Java than this project targets
+     *
+     * @param port to listen on, 0 picks a free one
+     * @param cacheBytes memory the cached grids may take before the least recently used are evicted
+     * @param threads number of queries answered at once
+     */
+    static GridQueryServer start(int port, long cacheBytes, int threads) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        GridQueryServer queryServer = new GridQueryServer(server, executor, new GridCache(cacheBytes, PositiveMask::read));
+
+        server.createContext("/count", queryServer::handleCount);
+        server.setExecutor(executor);
+        server.start();
+        return queryServer;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    GridCache cache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleCount(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Expected a GET request");
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String grid = query.get("grid");
+            if (grid == null || grid.isBlank()) {
+                respond(exchange, 400, "Expected a grid parameter with the path to a csv or binary grid");
+                return;
+            }
+
+            int n;
+            try {
+                n = Integer.parseInt(query.getOrDefault("n", ""));
+            } catch (NumberFormatException nfe) {
+                respond(exchange, 400, "Expected n to be an integer but found " + query.getOrDefault("n", "nothing"));
+                return;
+            }
+
+            try {
+                if (n < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+                CountingEngine engine = query.containsKey("engine") ? CountingEngine.fromName(query.get("engine")) : CountingEngine.FRONTIER_BFS;
+
+                respond(exchange, 200, String.valueOf(cache.count(Path.of(grid), n, engine)));
+            } catch (NoSuchFileException nsfe) {
+                respond(exchange, 404, nsfe.getFile() + " (No such file or directory)");
+            } catch (NumberFormatException nfe) {
+                respond(exchange, 400, "Expected csv with only numbers separated by commas but failed to parse: " + nfe.getMessage());
+            } catch (IllegalArgumentException iae) {
+                respond(exchange, 400, iae.getMessage());
+            } catch (IOException | RuntimeException e) {
+                respond(exchange, 500, "Error counting grid: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
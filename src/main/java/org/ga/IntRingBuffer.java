@@ -0,0 +1,64 @@
+package org.ga;
+
+/**
+ * FIFO queue of primitive ints backed by a power of two sized array. Used by the
+ * breadth first engines to hold packed cell indices without boxing. The buffer
+ * doubles its capacity when full, so callers don't need to know the peak frontier
+ * size up front.
+ */
+final class IntRingBuffer {
+    private int[] elements;
+    private int head; // Index of the next element to poll
+    private int size;
+
+    IntRingBuffer(int initialCapacity) {
+        int capacity = 16;
+        while (capacity < initialCapacity && capacity < 1 << 30) capacity <<= 1;
+        this.elements = new int[capacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int value) {
+        if (size == elements.length) grow();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the oldest element. Callers must check isEmpty first
+     *
+     * @return the element at the head of the queue
+     */
+    int poll() {
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity, unwrapping the elements so the head starts at index 0
+     */
+    private void grow() {
+        if (elements.length == 1 << 30) throw new IllegalStateException("Frontier exceeded maximum capacity");
+
+        int[] larger = new int[elements.length << 1];
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, larger, 0, firstPart);
+        System.arraycopy(elements, 0, larger, firstPart, head);
+        elements = larger;
+        head = 0;
+    }
+}
@@ -0,0 +1,129 @@
+package org.ga;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A grid main has loaded, by whichever backend the options picked: its values as an int[][], or
+ * only its positive cells as a mask, sparse grid or off heap grid. Every backend is counted and
+ * reported by the same countAndReport, so timing, metrics and output don't depend on how the grid
+ * was loaded.
+ */
+final class LoadedGrid {
+
+    /**
+     * How main was asked to count
+     *
+     * @param engine engine given with --engine, or null for the backend's default
+     * @param walls true to count around negative cells, only for grids loaded with their values
+     * @param pool pool to count row bands on with --parallel, or null to count on the calling thread
+     */
+    record Options(CountingEngine engine, DistanceMetric metric, boolean walls, ForkJoinPool pool, OutputFormat format) {
+    }
+
+    private final int[][] values;               // null unless loaded with values
+    private PositiveCells cells;                // Built from values on first use
+    private final CountingEngine defaultEngine; // null to count values with the legacy breadth first search
+    private final int rows;
+    private final int cols;
+    private final long parseNanos;
+
+    private LoadedGrid(int[][] values, PositiveCells cells, CountingEngine defaultEngine, int rows, int cols, long parseNanos) {
+        this.values = values;
+        this.cells = cells;
+        this.defaultEngine = defaultEngine;
+        this.rows = rows;
+        this.cols = cols;
+        this.parseNanos = parseNanos;
+    }
+
+    /**
+     * @param grid validated, rectangular grid of values
+     */
+    static LoadedGrid ofValues(int[][] grid, long parseNanos) {
+        return new LoadedGrid(grid, null, null, grid.length, grid.length == 0 ? 0 : grid[0].length, parseNanos);
+    }
+
+    /**
+     * @param defaultEngine engine to count with when --engine isn't given
+     */
+    static LoadedGrid ofCells(PositiveCells cells, CountingEngine defaultEngine, long parseNanos) {
+        return new LoadedGrid(null, cells, defaultEngine, cells.rows(), cells.cols(), parseNanos);
+    }
+
+    /**
+     * Counts every distance and prints one report per distance. Distances counted together share
+     * the same compute time
+     */
+    void countAndReport(int[] thresholds, Options options) {
+        long positives = options.format().isVerbose() ? 0 : values != null ? PositiveMask.countPositives(values) : cells.positiveCount();
+
+        long computeStart = System.nanoTime();
+        long[] counts = count(thresholds, options);
+        long computeNanos = System.nanoTime() - computeStart;
+        if (Metrics.ENABLED) Metrics.addPhase(Metrics.Phase.COMPUTE, computeNanos);
+
+        for (int i = 0; i < counts.length; i++) {
+            options.format().print(new OutputFormat.Report(thresholds[i], counts[i], rows, cols, positives, parseNanos, computeNanos, options.metric()));
+        }
+    }
+
+    private long[] count(int[] thresholds, Options options) {
+        if (options.walls()) {
+            // One search around the walls counts every distance
+            return GeodesicDilation.count(PositiveMask.of(values), PositiveMask.where(values, value -> value < 0), thresholds);
+        }
+
+        long[] counts = new long[thresholds.length];
+        if (options.metric() != DistanceMetric.MANHATTAN) {
+            for (int i = 0; i < thresholds.length; i++) {
+                counts[i] = GridCellNeighbors.findTotalCellCountWithinRange(cells(), thresholds[i], options.metric());
+            }
+            return counts;
+        }
+
+        // Dense grids count every distance from a single distance transform, unless an engine or
+        // parallel counting was asked for. Sparse and off heap grids may be far too large to
+        // expand into a mask, so they count one distance at a time
+        boolean engineChosen = options.engine() != null || options.pool() != null;
+        if (thresholds.length > 1 && !engineChosen && (values != null || cells instanceof PositiveMask)) {
+            int[] dense = values != null
+                    ? GridCellNeighbors.findTotalCellCountsWithinRanges(values, thresholds)
+                    : GridCellNeighbors.findTotalCellCountsWithinRanges((PositiveMask) cells, thresholds);
+            for (int i = 0; i < dense.length; i++) counts[i] = dense[i];
+            return counts;
+        }
+
+        // diamond_union gathers the positives onto the heap row by row. Gather them once for every distance
+        if (thresholds.length > 1 && engine(options) == CountingEngine.DIAMOND_UNION && values == null && !(cells instanceof PositiveMask)) {
+            cells = SparseGrid.of(cells);
+        }
+        for (int i = 0; i < thresholds.length; i++) counts[i] = count(thresholds[i], options);
+        return counts;
+    }
+
+    private long count(int n, Options options) {
+        if (options.pool() != null) {
+            return GridCellNeighbors.findTotalCellCountWithinRangeInParallel(cells(), n, engine(options), options.pool());
+        }
+        if (values != null) {
+            return options.engine() != null
+                    ? GridCellNeighbors.findTotalCellCountWithinRange(values, n, options.engine())
+                    : GridCellNeighbors.findTotalCellCountWithinRange(values, n);
+        }
+        return GridCellNeighbors.findTotalCellCountWithinRange(cells(), n, engine(options));
+    }
+
+    /**
+     * @return the engine to count with, or null to count values with the legacy breadth first search
+     */
+    private CountingEngine engine(Options options) {
+        if (options.engine() != null) return options.engine();
+        if (defaultEngine != null || options.pool() == null) return defaultEngine;
+        return CountingEngine.DIAMOND_UNION; // Legacy search can't count row bands
+    }
+
+    private PositiveCells cells() {
+        if (cells == null) cells = PositiveMask.of(values);
+        return cells;
+    }
+}
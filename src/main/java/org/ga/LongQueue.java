@@ -0,0 +1,62 @@
+package org.ga;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * Unbounded FIFO queue of primitive longs held outside the Java heap in fixed size chunks.
+ * Chunks are added as the queue grows and handed back for reuse once fully polled, so a
+ * queue of billions of cell indices needs neither boxing nor one huge array.
+ */
+final class LongQueue {
+
+    private static final int CHUNK_LONGS = 1 << 17; // 1MB per chunk
+
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private ByteBuffer spare; // Last chunk emptied, reused before allocating another
+    private int head;               // Next index to poll in the first chunk
+    private int tail = CHUNK_LONGS; // Next free index in the last chunk, full until the first add
+    private long size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long size() {
+        return size;
+    }
+
+    void add(long value) {
+        if (tail == CHUNK_LONGS) {
+            chunks.addLast(newChunk());
+            tail = 0;
+        }
+        chunks.peekLast().putLong(tail++ << 3, value);
+        size++;
+    }
+
+    /**
+     * Removes and returns the oldest element. Callers must check isEmpty first
+     *
+     * @return the element at the head of the queue
+     */
+    long poll() {
+        long value = chunks.peekFirst().getLong(head++ << 3);
+        size--;
+        if (head == CHUNK_LONGS) {
+            spare = chunks.pollFirst();
+            head = 0;
+            if (chunks.isEmpty()) tail = CHUNK_LONGS;
+        }
+        return value;
+    }
+
+    private ByteBuffer newChunk() {
+        if (spare == null) return ByteBuffer.allocateDirect(CHUNK_LONGS * Long.BYTES).order(ByteOrder.nativeOrder());
+
+        ByteBuffer chunk = spare;
+        spare = null;
+        return chunk;
+    }
+}
@@ -0,0 +1,234 @@
+package org.ga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Parses a csv grid by memory mapping the file and scanning its bytes straight into ints.
+ * Values are accumulated digit by digit with no String, regex or stream per value. Large
+ * files are cut into chunks that end on a line break, so chunks can be mapped and parsed
+ * independently, in parallel, and stitched back together in order.
+ *
+ * Parsing follows the line based parser: '\n' and '\r' end a row, whitespace is ignored,
+ * blank values and rows with no values are skipped, and a value that isn't an int fails
+ * with the same NumberFormatException Integer.parseInt gives.
+ */
+final class MappedCsvParser {
+
+    /**
+     * Chunks smaller than this aren't worth handing to another thread
+     */
+    private static final long MIN_PARALLEL_CHUNK_BYTES = 8L << 20;
+
+    /**
+     * A single mapping can't exceed Integer.MAX_VALUE bytes
+     */
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private MappedCsvParser() {
+    }
+
+    /**
+     * Parses the file using up to one thread per core of the common pool
+     *
+     * @param path to a csv grid
+     * @return the rows of the grid, not validated for equal length
+     * @throws IOException if the file can't be read
+     * @throws NumberFormatException if a value isn't an integer
+     */
+    static int[][] parse(Path path) throws IOException {
+        return parse(path, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Parses the file split into at most 'parallelism' chunks of a useful size, or more if the
+     * file is too large to map in that many chunks
+     *
+     * @param path to a csv grid
+     * @param parallelism number of chunks to aim for, 1 parses on the calling thread only
+     * @return the rows of the grid, not validated for equal length
+     * @throws IOException if the file can't be read
+     * @throws NumberFormatException if a value isn't an integer
+     */
+    static int[][] parse(Path path, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long wantedChunks = Math.max(1, Math.min(parallelism, size / MIN_PARALLEL_CHUNK_BYTES));
+            long chunkBytes = Math.max(1, (size + wantedChunks - 1) / wantedChunks);
+            return parse(channel, chunkBytes, parallelism > 1);
+        }
+    }
+
+    /**
+     * Parses the file in chunks of about chunkBytes, in parallel
+     *
+     * @param chunkBytes size to cut chunks at before moving to the next line break
+     */
+    static int[][] parseInChunks(Path path, long chunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(channel, chunkBytes, true);
+        }
+    }
+
+    private static int[][] parse(FileChannel channel, long chunkBytes, boolean parallel) throws IOException {
+        long[] boundaries = chunkBoundaries(channel, channel.size(), Math.min(MAX_CHUNK_BYTES, chunkBytes));
+
+        int chunks = boundaries.length - 1;
+        IntStream chunkIndexes = IntStream.range(0, chunks);
+        if (chunks > 1 && parallel) chunkIndexes = chunkIndexes.parallel();
+
+        List<ParsedChunk> parsedChunks = chunkIndexes
+                .mapToObj(i -> ParsedChunk.parse(channel, boundaries[i], boundaries[i + 1]))
+                .toList(); // Keeps chunk order even when parsed in parallel
+
+        // Report the failure closest to the start of the file, as a sequential parse would
+        for (ParsedChunk chunk : parsedChunks) {
+            if (chunk.failure() instanceof UncheckedIOException uioe) throw uioe.getCause();
+            if (chunk.failure() != null) throw chunk.failure();
+        }
+
+        int rowCount = parsedChunks.stream().mapToInt(chunk -> chunk.rows().size()).sum();
+        int[][] grid = new int[rowCount][];
+        int next = 0;
+        for (ParsedChunk chunk : parsedChunks) {
+            for (int[] row : chunk.rows()) grid[next++] = row;
+        }
+
+        if (Metrics.ENABLED) {
+            Metrics.add(Metrics.Counter.ROWS_PARSED, grid.length);
+            for (int[] row : grid) Metrics.add(Metrics.Counter.TOKENS_PARSED, row.length);
+        }
+        return grid;
+    }
+
+    /**
+     * Picks chunk boundaries roughly chunkBytes apart, each moved forward to just after a line break
+     *
+     * @return increasing offsets starting at 0 and ending at size
+     */
+    private static long[] chunkBoundaries(FileChannel channel, long size, long chunkBytes) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        long start = 0;
+        while (size - start > chunkBytes) {
+            long end = nextLineStart(channel, start + chunkBytes, size);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Rows in csv grid must be shorter than " + Integer.MAX_VALUE + " bytes");
+            }
+            boundaries.add(end);
+            start = end;
+        }
+        if (start < size) boundaries.add(size);
+
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return the offset just after the first line break at or after 'from', or size if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        long window = Math.min(1 << 16, size - from);
+        while (from < size) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, window);
+            for (int i = 0; i < window; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') return from + i + 1;
+            }
+            from += window;
+            window = Math.min(window << 1, Math.min(MAX_CHUNK_BYTES, size - from));
+        }
+        return size;
+    }
+
+    private static List<int[]> parseChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+
+        List<int[]> rows = new ArrayList<>();
+        RowAccumulator row = new RowAccumulator();
+        int limit = buffer.limit();
+        int valueStart = 0;
+
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            boolean plain;
+            if (b >= '0' && b <= '9') {
+                plain = row.digit(b - '0');
+            } else if (b == ',') {
+                plain = row.endValue();
+                if (plain) valueStart = i + 1;
+            } else if (b == '\n' || b == '\r') {
+                plain = row.endValue();
+                if (plain) {
+                    addRow(rows, row.endRow());
+                    valueStart = i + 1;
+                }
+            } else if (b == '-' || b == '+') {
+                plain = row.sign(b == '-');
+            } else {
+                plain = RowAccumulator.isWhitespace(b);
+            }
+
+            if (!plain) {
+                // Hand the whole value to Integer.parseInt so errors match it exactly
+                int valueEnd = i;
+                while (valueEnd < limit && !isValueEnd(buffer.get(valueEnd))) valueEnd++;
+                row.parseValue(stripWhitespace(buffer, valueStart, valueEnd));
+                i = valueEnd - 1; // The separator is handled on the next iteration
+                valueStart = valueEnd;
+            }
+        }
+
+        if (!row.endValue()) row.parseValue(stripWhitespace(buffer, valueStart, limit));
+        addRow(rows, row.endRow());
+        return rows;
+    }
+
+    private static void addRow(List<int[]> rows, int[] row) {
+        if (row.length > 0) rows.add(row); // Only add rows that have non-blank values
+    }
+
+    private static boolean isValueEnd(byte b) {
+        return b == ',' || b == '\n' || b == '\r';
+    }
+
+    private static String stripWhitespace(MappedByteBuffer buffer, int start, int end) {
+        byte[] value = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (!RowAccumulator.isWhitespace(b)) value[length++] = b;
+        }
+        return new String(value, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rows of one chunk, or the exception that stopped it. Failures are carried back
+     * rather than thrown so the caller rethrows the original exception and not a copy
+     * made by the fork join pool
+     */
+    private record ParsedChunk(List<int[]> rows, RuntimeException failure) {
+
+        static ParsedChunk parse(FileChannel channel, long start, long end) {
+            try {
+                return new ParsedChunk(parseChunk(channel, start, end), null);
+            } catch (NumberFormatException | UncheckedIOException e) {
+                return new ParsedChunk(List.of(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.ga;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counters and phase timers for the counting pipeline, enabled by starting the JVM with
+ * -Dorg.ga.metrics=true. ENABLED is a static final constant, so when it's false the JIT
+ * drops every "if (Metrics.ENABLED)" block and instrumented code runs as if it weren't.
+ * When enabled the metrics are registered as the MXBean org.ga:type=GridMetrics.
+ *
+ * Hot loops keep their own local tallies and add them here once they finish, so even
+ * enabled metrics don't contend on a shared counter per cell.
+ */
+final class Metrics {
+
+    static final boolean ENABLED = Boolean.getBoolean("org.ga.metrics");
+
+    static final String OBJECT_NAME = "org.ga:type=GridMetrics";
+
+    enum Counter {
+        /** Non-blank csv rows turned into ints */
+        ROWS_PARSED,
+        /** Csv values turned into ints */
+        TOKENS_PARSED,
+        /** Positive cells found while building grids, masks and sparse grids */
+        POSITIVES_FOUND,
+        /** Cells added to a breadth first search queue */
+        CELLS_ENQUEUED,
+        /** Neighbors a breadth first search skipped, or polled and dropped, because they were already found */
+        DUPLICATE_ENQUEUES_SKIPPED,
+        /** Cells counted as within distance n of a positive cell */
+        CELLS_COVERED
+    }
+
+    enum Phase {
+        /** Reading and parsing the grid file */
+        PARSE,
+        /** Checking the parsed grid isn't empty or jagged */
+        VALIDATE,
+        /** Counting covered cells */
+        COMPUTE
+    }
+
+    private static final LongAdder[] COUNTERS = newAdders(Counter.values().length);
+    private static final LongAdder[] PHASE_NANOS = newAdders(Phase.values().length);
+    private static final LongAdder[] PHASE_CALLS = newAdders(Phase.values().length);
+
+    static {
+        if (ENABLED) register();
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Adds to a counter. Callers check ENABLED first so disabled metrics cost nothing
+     */
+    static void add(Counter counter, long amount) {
+        COUNTERS[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Adds one run of a phase. Callers check ENABLED first so disabled metrics cost nothing
+     */
+    static void addPhase(Phase phase, long nanos) {
+        PHASE_NANOS[phase.ordinal()].add(nanos);
+        PHASE_CALLS[phase.ordinal()].increment();
+    }
+
+    static long get(Counter counter) {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    static long nanos(Phase phase) {
+        return PHASE_NANOS[phase.ordinal()].sum();
+    }
+
+    static long calls(Phase phase) {
+        return PHASE_CALLS[phase.ordinal()].sum();
+    }
+
+    static void reset() {
+        Arrays.stream(COUNTERS).forEach(LongAdder::reset);
+        Arrays.stream(PHASE_NANOS).forEach(LongAdder::reset);
+        Arrays.stream(PHASE_CALLS).forEach(LongAdder::reset);
+    }
+
+    /**
+     * @return every counter and phase total as a single JSON object
+     */
+    static String summary() {
+        String counters = Arrays.stream(Counter.values())
+                .map(counter -> "\"" + counter.name().toLowerCase(Locale.ROOT) + "\":" + get(counter))
+                .collect(Collectors.joining(","));
+        String phases = Arrays.stream(Phase.values())
+                .map(phase -> "\"" + phase.name().toLowerCase(Locale.ROOT) + "_ms\":" + String.format(Locale.ROOT, "%.3f", nanos(phase) / 1e6))
+                .collect(Collectors.joining(","));
+        return "{" + counters + "," + phases + "}";
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        Arrays.setAll(adders, i -> new LongAdder());
+        return adders;
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new MXBeanView(), GridMetricsMXBean.class, true), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException alreadyRegistered) {
+            // Another copy of the class, e.g. from a second class loader, registered first
+        } catch (JMException jme) {
+            throw new IllegalStateException("Couldn't register " + OBJECT_NAME, jme);
+        }
+    }
+
+    private static final class MXBeanView implements GridMetricsMXBean {
+
+        @Override
+        public long getRowsParsed() {
+            return get(Counter.ROWS_PARSED);
+        }
+
+        @Override
+        public long getTokensParsed() {
+            return get(Counter.TOKENS_PARSED);
+        }
+
+        @Override
+        public long getPositivesFound() {
+            return get(Counter.POSITIVES_FOUND);
+        }
+
+        @Override
+        public long getCellsEnqueued() {
+            return get(Counter.CELLS_ENQUEUED);
+        }
+
+        @Override
+        public long getDuplicateEnqueuesSkipped() {
+            return get(Counter.DUPLICATE_ENQUEUES_SKIPPED);
+        }
+
+        @Override
+        public long getCellsCovered() {
+            return get(Counter.CELLS_COVERED);
+        }
+
+        @Override
+        public long getParseNanos() {
+            return nanos(Phase.PARSE);
+        }
+
+        @Override
+        public long getValidateNanos() {
+            return nanos(Phase.VALIDATE);
+        }
+
+        @Override
+        public long getComputeNanos() {
+            return nanos(Phase.COMPUTE);
+        }
+
+        @Override
+        public long getComputeCount() {
+            return calls(Phase.COMPUTE);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.ga;
+
+import java.util.Objects;
+
+/**
+ * For every cell within distance n of a positive cell, its Manhattan distance to the nearest
+ * positive and which positive that is, e.g. to assign each cell to the service area of one
+ * positive. Positives are labelled 0, 1, 2, ... in row-major order, and a cell equally close to
+ * several positives takes the smallest label, so the result doesn't depend on anything but the grid.
+ *
+ * Both planes are computed by the two raster passes of DistanceTransform, each cell taking the
+ * smallest (distance, label) pair of itself and its already visited neighbors. Every positive
+ * reaches every cell along a path those passes follow, so the pairs are exact. Distances are
+ * stored as shorts when n allows it, labels as ints, so a cell costs 6 bytes and no objects.
+ */
+public final class NearestPositive {
+
+    /**
+     * Distance and label of cells more than n away from every positive
+     */
+    public static final int UNCOVERED = -1;
+
+    private static final int NO_LABEL = Integer.MAX_VALUE;
+
+    private final int rows;
+    private final int cols;
+    private final short[] shortDistances; // Used when n < Short.MAX_VALUE
+    private final int[] intDistances;     // Used otherwise
+    private final int[] labels;
+    private final int[] positives;        // Row-major index of the positive with each label
+    private long coveredCount;
+
+    private NearestPositive(int rows, int cols, short[] shortDistances, int[] intDistances, int[] labels, int[] positives) {
+        this.rows = rows;
+        this.cols = cols;
+        this.shortDistances = shortDistances;
+        this.intDistances = intDistances;
+        this.labels = labels;
+        this.positives = positives;
+    }
+
+    /**
+     * @param mask positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @throws IllegalArgumentException if n is negative or the grid has too many cells for flat planes
+     */
+    static NearestPositive of(PositiveMask mask, int n) {
+        if (n < 0) throw new IllegalArgumentException("Integer N representing the max Manhattan distance from any positive cell cannot be negative");
+        int rows = mask.rows();
+        int width = mask.cols();
+        if ((long) rows * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid with " + rows + "x" + width + " cells is too large for flat distance and label planes");
+        }
+
+        int cells = rows * width;
+        // Any distance beyond n is stored as cap. Grids this size can't have distances near Integer.MAX_VALUE
+        int cap = (int) Math.min((long) n + 1, Integer.MAX_VALUE - 1);
+        short[] shortDistances = cap <= Short.MAX_VALUE ? new short[cells] : null;
+        int[] intDistances = shortDistances == null ? new int[cells] : null;
+        NearestPositive result = new NearestPositive(rows, width, shortDistances, intDistances, new int[cells],
+                new int[Math.toIntExact(mask.positiveCount())]);
+        result.compute(mask, cap);
+        return result;
+    }
+
+    private void compute(PositiveMask mask, int cap) {
+        long[] words = mask.words();
+        int wordsPerRow = mask.wordsPerRow();
+        int width = cols;
+
+        // Forward pass: top-left to bottom-right, labelling positives as they're met
+        int nextLabel = 0;
+        for (int y = 0; y < rows; y++) {
+            int wordStart = y * wordsPerRow;
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                int index = rowStart + x;
+                if ((words[wordStart + (x >>> 6)] & (1L << x)) != 0) {
+                    positives[nextLabel] = index;
+                    setDistance(index, 0);
+                    labels[index] = nextLabel++;
+                    continue;
+                }
+
+                int distance = cap;
+                int label = NO_LABEL;
+                if (y > 0) {
+                    int up = distance(index - width) + 1;
+                    if (up < cap) {
+                        distance = up;
+                        label = labels[index - width];
+                    }
+                }
+                if (x > 0) {
+                    int left = distance(index - 1) + 1;
+                    if (left < distance || (left == distance && left < cap && labels[index - 1] < label)) {
+                        distance = left;
+                        label = labels[index - 1];
+                    }
+                }
+                setDistance(index, distance);
+                labels[index] = label;
+            }
+        }
+
+        // Backward pass: bottom-right to top-left
+        for (int y = rows - 1; y >= 0; y--) {
+            int rowStart = y * width;
+            for (int x = width - 1; x >= 0; x--) {
+                int index = rowStart + x;
+                int distance = distance(index);
+                int label = labels[index];
+                if (y < rows - 1) {
+                    int down = distance(index + width) + 1;
+                    if (down < distance || (down == distance && down < cap && labels[index + width] < label)) {
+                        distance = down;
+                        label = labels[index + width];
+                    }
+                }
+                if (x < width - 1) {
+                    int right = distance(index + 1) + 1;
+                    if (right < distance || (right == distance && right < cap && labels[index + 1] < label)) {
+                        distance = right;
+                        label = labels[index + 1];
+                    }
+                }
+
+                setDistance(index, distance);
+                labels[index] = label;
+            }
+        }
+
+        // Cells beyond n were needed at cap during the passes, so they're only marked uncovered now
+        long covered = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (distance(i) >= cap) {
+                setDistance(i, UNCOVERED);
+                labels[i] = UNCOVERED;
+            } else {
+                covered++;
+            }
+        }
+
+        coveredCount = covered;
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return Manhattan distance from the cell to its nearest positive, or UNCOVERED if that's more than n
+     */
+    public int distance(int y, int x) {
+        return distance(index(y, x));
+    }
+
+    /**
+     * @return label of the positive nearest to the cell, or UNCOVERED if it's more than n away
+     */
+    public int label(int y, int x) {
+        return labels[index(y, x)];
+    }
+
+    /**
+     * @return the number of positives, labelled 0 to positiveCount - 1
+     */
+    public int positiveCount() {
+        return positives.length;
+    }
+
+    public int positiveRow(int label) {
+        return positives[Objects.checkIndex(label, positives.length)] / cols;
+    }
+
+    public int positiveCol(int label) {
+        return positives[Objects.checkIndex(label, positives.length)] % cols;
+    }
+
+    /**
+     * @return the number of covered cells, the same as findTotalCellCountWithinRange
+     */
+    public long coveredCount() {
+        return coveredCount;
+    }
+
+    /**
+     * @return the number of cells assigned to each positive, indexed by label
+     */
+    public long[] areas() {
+        long[] areas = new long[positives.length];
+        for (int label : labels) {
+            if (label != UNCOVERED) areas[label]++;
+        }
+        return areas;
+    }
+
+    /**
+     * @return the row-major label plane itself, not a copy
+     */
+    public int[] labels() {
+        return labels;
+    }
+
+    /**
+     * @return the row-major distance plane itself, not a copy, or null if n was too large for shorts
+     */
+    public short[] shortDistances() {
+        return shortDistances;
+    }
+
+    /**
+     * @return the row-major distance plane itself, not a copy, or null if distances are stored as shorts
+     */
+    public int[] intDistances() {
+        return intDistances;
+    }
+
+    private int index(int y, int x) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+        return y * cols + x;
+    }
+
+    private int distance(int index) {
+        return shortDistances != null ? shortDistances[index] : intDistances[index];
+    }
+
+    private void setDistance(int index, int distance) {
+        if (shortDistances != null) shortDistances[index] = (short) distance;
+        else intDistances[index] = distance;
+    }
+}
@@ -0,0 +1,90 @@
+package org.ga;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed size bitset held outside the Java heap in direct buffers of up to 1GB each, so it
+ * isn't limited by the 2^31 entries of an array and doesn't weigh on garbage collection.
+ * Bit i lives in word i >>> 6 like the long[] bitsets in Bits. Memory is zeroed on allocation
+ * and counts against -XX:MaxDirectMemorySize.
+ *
+ * Reads may run on many threads at once, writes need external synchronization.
+ */
+final class OffHeapBits {
+
+    /**
+     * Each segment holds 2^27 words, 1GB, the largest power of two a ByteBuffer can address
+     */
+    private static final int SEGMENT_WORD_BITS = 27;
+    private static final long SEGMENT_WORDS = 1L << SEGMENT_WORD_BITS;
+
+    private final long size;
+    private final ByteBuffer[] segments;
+
+    OffHeapBits(long size) {
+        if (size < 0) throw new IllegalArgumentException("Bitset can't have " + size + " bits");
+        this.size = size;
+
+        long words = (size + 63) >>> 6;
+        this.segments = new ByteBuffer[(int) ((words + SEGMENT_WORDS - 1) >>> SEGMENT_WORD_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long segmentWords = Math.min(SEGMENT_WORDS, words - ((long) i << SEGMENT_WORD_BITS));
+            segments[i] = ByteBuffer.allocateDirect((int) (segmentWords * Long.BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * @return the number of bits
+     */
+    long size() {
+        return size;
+    }
+
+    long word(long wordIndex) {
+        return segments[(int) (wordIndex >>> SEGMENT_WORD_BITS)].getLong((int) (wordIndex & (SEGMENT_WORDS - 1)) << 3);
+    }
+
+    void setWord(long wordIndex, long word) {
+        segments[(int) (wordIndex >>> SEGMENT_WORD_BITS)].putLong((int) (wordIndex & (SEGMENT_WORDS - 1)) << 3, word);
+    }
+
+    boolean get(long bit) {
+        return (word(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Sets a bit
+     *
+     * @return true if the bit was clear before
+     */
+    boolean set(long bit) {
+        long wordIndex = bit >>> 6;
+        long word = word(wordIndex);
+        long mask = 1L << bit;
+        if ((word & mask) != 0) return false;
+
+        setWord(wordIndex, word | mask);
+        return true;
+    }
+
+    /**
+     * Counts the set bits in [fromBit, toBit)
+     */
+    long countRange(long fromBit, long toBit) {
+        if (fromBit >= toBit) return 0;
+
+        long firstWord = fromBit >>> 6;
+        long lastWord = (toBit - 1) >>> 6;
+        long firstMask = -1L << fromBit;
+        long lastMask = -1L >>> (63 - ((toBit - 1) & 63));
+
+        if (firstWord == lastWord) return Long.bitCount(word(firstWord) & firstMask & lastMask);
+
+        long count = Long.bitCount(word(firstWord) & firstMask);
+        for (long i = firstWord + 1; i < lastWord; i++) {
+            count += Long.bitCount(word(i));
+        }
+        return count + Long.bitCount(word(lastWord) & lastMask);
+    }
+}
@@ -0,0 +1,222 @@
+package org.ga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A grid of int values held outside the heap, flat and row-major, so a grid of tens of GB costs the
+ * heap a few objects instead of a row array per row for the collector to scan. Cells live in
+ * little-endian ByteBuffer segments of whole rows, up to 1GB each, either direct memory or an
+ * INT32 binary grid file mapped straight in by BinaryGridFormat.mapGrid.
+ *
+ * Implements PositiveCells, so every counting engine accepts it directly.
+ */
+public final class OffHeapGrid implements PositiveCells {
+
+    /**
+     * Bytes a segment holds at most, the largest power of two a ByteBuffer can address
+     */
+    static final long SEGMENT_BYTES = 1L << 30;
+
+    private static final int FIRST_CSV_ROWS = 1024;
+
+    private final int rows;
+    private final int cols;
+    private final int rowsPerSegment;
+    private final ByteBuffer[] segments;
+    private long positiveCount = -1; // Counted on first use
+
+    /**
+     * @param segments little-endian buffers of rowsPerSegment rows each, the last possibly fewer
+     */
+    OffHeapGrid(int rows, int cols, int rowsPerSegment, ByteBuffer[] segments) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+    }
+
+    /**
+     * @return rows of cols ints that fit in one segment, at least 1
+     * @throws IllegalArgumentException if a single row is too large for a segment
+     */
+    static int rowsPerSegment(int rows, int cols) {
+        long rowBytes = (long) cols * Integer.BYTES;
+        if (rowBytes > SEGMENT_BYTES) throw new IllegalArgumentException("Grid rows of " + cols + " cells are too large for an off heap grid");
+        return (int) Math.max(1, Math.min(rows, rowBytes == 0 ? rows : SEGMENT_BYTES / rowBytes));
+    }
+
+    /**
+     * Allocates a grid of zeros in direct memory. Direct memory is capped by -XX:MaxDirectMemorySize
+     */
+    public static OffHeapGrid allocate(int rows, int cols) {
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("Grid can't have " + rows + "x" + cols + " cells");
+        int rowsPerSegment = rowsPerSegment(rows, cols);
+        ByteBuffer[] segments = new ByteBuffer[rows == 0 ? 0 : (rows + rowsPerSegment - 1) / rowsPerSegment];
+        for (int i = 0; i < segments.length; i++) {
+            int segmentRows = Math.min(rowsPerSegment, rows - i * rowsPerSegment);
+            segments[i] = ByteBuffer.allocateDirect(segmentRows * cols * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapGrid(rows, cols, rowsPerSegment, segments);
+    }
+
+    /**
+     * Copies a grid into direct memory
+     *
+     * @param grid rectangular 2D grid of signed integers
+     */
+    public static OffHeapGrid of(int[][] grid) {
+        int cols = grid.length == 0 ? 0 : grid[0].length;
+        OffHeapGrid offHeap = allocate(grid.length, cols);
+        for (int y = 0; y < grid.length; y++) {
+            if (grid[y].length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+            offHeap.segment(y).asIntBuffer().put(offHeap.rowOffset(y) / Integer.BYTES, grid[y]);
+        }
+        return offHeap;
+    }
+
+    /**
+     * Parses a csv grid a line at a time straight into direct memory, so no int[] per row is kept.
+     * The csv is parsed and validated the same way as GridCellNeighbors.main
+     *
+     * @throws IllegalArgumentException if the csv has no rows or rows of different lengths
+     * @throws NumberFormatException if a value isn't an integer
+     */
+    public static OffHeapGrid readCsv(Path csv) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            List<ByteBuffer> segments = new ArrayList<>();
+            ByteBuffer segment = null;
+            int rowsPerSegment = 0;
+            int rows = 0;
+            int cols = -1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int[] row = CsvRowParser.parseRow(line);
+                if (row.length == 0) continue; // Only count rows that have non-blank values
+
+                if (cols < 0) {
+                    cols = row.length;
+                    rowsPerSegment = rowsPerSegment(Integer.MAX_VALUE, cols);
+                } else if (row.length != cols) {
+                    throw new IllegalArgumentException("All rows in grid need to have the same length");
+                }
+
+                // Segments start small and double up to their full size, so small grids don't reserve 1GB
+                int rowBytes = cols * Integer.BYTES;
+                if (segment == null || segment.remaining() < rowBytes) {
+                    int segmentRows = segment == null ? 0 : segment.position() / Math.max(1, rowBytes);
+                    if (segment != null && segmentRows < rowsPerSegment) {
+                        int grown = (int) Math.min(rowsPerSegment, Math.max(FIRST_CSV_ROWS, 2L * segmentRows));
+                        segment = ByteBuffer.allocateDirect(grown * rowBytes).order(ByteOrder.LITTLE_ENDIAN).put(segment.flip());
+                        segments.set(segments.size() - 1, segment);
+                    } else {
+                        segment = ByteBuffer.allocateDirect(Math.min(rowsPerSegment, FIRST_CSV_ROWS) * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+                        segments.add(segment);
+                    }
+                }
+                for (int value : row) segment.putInt(value);
+                rows++;
+            }
+            if (rows == 0) throw new IllegalArgumentException("Expected a grid in csv but found none");
+            segments.forEach(ByteBuffer::clear); // Cells are addressed absolutely from the start of each segment
+
+            return new OffHeapGrid(rows, cols, rowsPerSegment, segments.toArray(new ByteBuffer[0]));
+        }
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return the value of the cell at y,x
+     */
+    public int get(int y, int x) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+        return segment(y).getInt(rowOffset(y) + x * Integer.BYTES);
+    }
+
+    /**
+     * Changes the value of the cell at y,x
+     *
+     * @throws java.nio.ReadOnlyBufferException if the grid is a read only mapped file
+     */
+    public void set(int y, int x, int value) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+        segment(y).putInt(rowOffset(y) + x * Integer.BYTES, value);
+        positiveCount = -1;
+    }
+
+    /**
+     * Copies row y into 'into', which must hold at least cols ints
+     */
+    public void getRow(int y, int[] into) {
+        Objects.checkIndex(y, rows);
+        segment(y).asIntBuffer().get(rowOffset(y) / Integer.BYTES, into, 0, cols);
+    }
+
+    @Override
+    public boolean isPositive(int y, int x) {
+        return get(y, x) > 0;
+    }
+
+    @Override
+    public long positiveCount() {
+        if (positiveCount < 0) {
+            long count = 0;
+            for (int y = 0; y < rows; y++) {
+                ByteBuffer segment = segment(y);
+                for (int offset = rowOffset(y), end = offset + cols * Integer.BYTES; offset < end; offset += Integer.BYTES) {
+                    if (segment.getInt(offset) > 0) count++;
+                }
+            }
+            positiveCount = count;
+        }
+        return positiveCount;
+    }
+
+    @Override
+    public int nextPositiveRow(int fromRow) {
+        for (int y = Math.max(0, fromRow); y < rows; y++) {
+            if (nextPositive(y, 0) >= 0) return y;
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextPositive(int y, int fromCol) {
+        Objects.checkIndex(y, rows);
+        ByteBuffer segment = segment(y);
+        int rowOffset = rowOffset(y);
+        for (int x = Math.max(0, fromCol); x < cols; x++) {
+            if (segment.getInt(rowOffset + x * Integer.BYTES) > 0) return x;
+        }
+        return -1;
+    }
+
+    private ByteBuffer segment(int y) {
+        return segments[y / rowsPerSegment];
+    }
+
+    /**
+     * @return byte offset of row y within its segment
+     */
+    private int rowOffset(int y) {
+        return (y % rowsPerSegment) * cols * Integer.BYTES;
+    }
+}
@@ -0,0 +1,105 @@
+package org.ga;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * How the command line prints each count. TEXT is the original sentence, printed after
+ * the grid echo. JSON and TSV skip the echo and any other progress lines, printing one
+ * line per distance with the metric, the count, the grid size and how long parsing and counting took.
+ */
+enum OutputFormat {
+
+    /**
+     * "count Neighbors within a manhattan distance of n", naming whichever metric was counted
+     */
+    TEXT {
+        @Override
+        String format(Report report) {
+            return report.count() + " Neighbors within a " + report.metricName() + " distance of " + report.distance();
+        }
+    },
+
+    /**
+     * One JSON object per line
+     */
+    JSON {
+        @Override
+        String format(Report report) {
+            return "{\"distance\":" + report.distance() +
+                    ",\"metric\":\"" + report.metricName() + "\"" +
+                    ",\"count\":" + report.count() +
+                    ",\"rows\":" + report.rows() +
+                    ",\"cols\":" + report.cols() +
+                    ",\"cells\":" + report.cells() +
+                    ",\"positives\":" + report.positives() +
+                    ",\"parse_ms\":" + millis(report.parseNanos()) +
+                    ",\"compute_ms\":" + millis(report.computeNanos()) + "}";
+        }
+    },
+
+    /**
+     * Tab separated distance, metric, count, rows, cols, cells, positives, parse_ms and compute_ms
+     */
+    TSV {
+        @Override
+        String format(Report report) {
+            return report.distance() + "\t" + report.metricName() + "\t" + report.count() + "\t" + report.rows() + "\t" + report.cols() + "\t" +
+                    report.cells() + "\t" + report.positives() + "\t" +
+                    millis(report.parseNanos()) + "\t" + millis(report.computeNanos());
+        }
+    };
+
+    /**
+     * Result of counting one distance
+     *
+     * @param parseNanos time spent reading, parsing and validating the grid
+     * @param computeNanos time spent counting. Distances counted together share the same time
+     * @param metric how distance was measured
+     */
+    record Report(int distance, long count, int rows, int cols, long positives, long parseNanos, long computeNanos,
+                  DistanceMetric metric) {
+
+        long cells() {
+            return (long) rows * cols;
+        }
+
+        String metricName() {
+            return metric.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    abstract String format(Report report);
+
+    /**
+     * Prints a report to stdout and records it as a flight recorder event, if one is being recorded
+     */
+    void print(Report report) {
+        CountEvent.commit(report);
+        System.out.println(format(report));
+    }
+
+    /**
+     * @return true if progress lines and the grid echo should be printed
+     */
+    boolean isVerbose() {
+        return this == TEXT;
+    }
+
+    /**
+     * Looks up a format by name, ignoring case
+     */
+    static OutputFormat fromName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) return format;
+        }
+
+        throw new IllegalArgumentException("Unknown format " + name + ". Expected one of " +
+                Arrays.stream(values()).map(format -> format.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,74 @@
+package org.ga;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits the grid into horizontal row bands and counts them as fork join tasks. Each
+ * band decides its own rows independently, reading a halo of n rows above and below
+ * where the engine needs it, and the band counts are summed.
+ */
+final class ParallelBands {
+
+    /**
+     * Bands per worker thread. More bands than threads evens out work when positives
+     * are clustered in part of the grid
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    private ParallelBands() {
+    }
+
+    static long count(PositiveCells cells, int n, CountingEngine engine, ForkJoinPool pool) {
+        if (n < 0 || cells.rows() == 0 || cells.cols() == 0) return 0;
+
+        RowBandCounter counter = engine.rowBandCounter(cells, n);
+        int bandRows = bandRows(cells.rows(), n, pool.getParallelism());
+        if (bandRows >= cells.rows()) return counter.countRows(0, cells.rows());
+        return pool.invoke(new BandTask(counter, 0, cells.rows(), bandRows));
+    }
+
+    /**
+     * Bands are at least n rows tall. Each band also searches n rows above and below it, so
+     * thinner bands would spend most of their work on rows their neighbors count anyway
+     *
+     * @return the height of the bands a grid of 'rows' rows is split into
+     */
+    static int bandRows(int rows, int n, int parallelism) {
+        return Math.max(Math.max(1, n), ceilDiv(rows, parallelism * BANDS_PER_THREAD));
+    }
+
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    /**
+     * Halves its row range until it's no taller than bandRows, then counts it
+     */
+    private static final class BandTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final RowBandCounter counter;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+
+        BandTask(RowBandCounter counter, int fromRow, int toRow, int bandRows) {
+            this.counter = counter;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected Long compute() {
+            if (toRow - fromRow <= bandRows) return counter.countRows(fromRow, toRow);
+
+            int middle = (fromRow + toRow) >>> 1;
+            BandTask top = new BandTask(counter, fromRow, middle, bandRows);
+            top.fork();
+            long bottom = new BandTask(counter, middle, toRow, bandRows).compute();
+            return top.join() + bottom;
+        }
+    }
+}
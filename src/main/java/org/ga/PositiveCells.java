@@ -0,0 +1,32 @@
+package org.ga;
+
+/**
+ * Read only view of which cells of a rows x cols grid are positive, the only thing the
+ * counting engines need to know about cell values. Implemented densely by PositiveMask and
+ * sparsely by SparseGrid, so engines can count grids far too large to hold as int[][].
+ */
+public interface PositiveCells {
+
+    int rows();
+
+    int cols();
+
+    boolean isPositive(int y, int x);
+
+    /**
+     * @return the number of positive cells
+     */
+    long positiveCount();
+
+    /**
+     * @param fromRow any row index, past the last row there is nothing left to find
+     * @return the first row at or after fromRow holding a positive cell, or -1 if there is none
+     */
+    int nextPositiveRow(int fromRow);
+
+    /**
+     * @param fromCol any column index, past the last column there is nothing left to find
+     * @return the first column at or after fromCol of a positive cell in row y, or -1 if there is none
+     */
+    int nextPositive(int y, int fromCol);
+}
@@ -0,0 +1,213 @@
+package org.ga;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+
+/**
+ * Packed bitmap of which cells of a grid are positive, the only thing the counting engines
+ * need to know about cell values. Each row starts on a fresh long word, bit x of a row
+ * living in word x >>> 6 of that row, so rows can be scanned a word at a time. Takes 1 bit
+ * per cell instead of the 32 of an int[][].
+ */
+public final class PositiveMask implements PositiveCells {
+    private final int rows;
+    private final int cols;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    PositiveMask(int rows, int cols, long[] words) {
+        this.rows = rows;
+        this.cols = cols;
+        this.wordsPerRow = wordsPerRow(cols);
+        if (words.length != (long) rows * wordsPerRow) {
+            throw new IllegalArgumentException("Expected " + (long) rows * wordsPerRow + " words for a " + rows + "x" + cols + " mask but found " + words.length);
+        }
+        this.words = words;
+    }
+
+    /**
+     * Creates an empty mask with no positive cells
+     */
+    static PositiveMask empty(int rows, int cols) {
+        long wordCount = (long) rows * wordsPerRow(cols);
+        if (wordCount > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Grid with " + rows + "x" + cols + " cells is too large for a mask");
+        return new PositiveMask(rows, cols, new long[(int) wordCount]);
+    }
+
+    /**
+     * Counts the cells with a value greater than zero without building a mask, or adding to
+     * Metrics.Counter.POSITIVES_FOUND, for reporting the size of a grid an engine counts itself
+     */
+    static long countPositives(int[][] grid) {
+        long positives = 0;
+        for (int[] row : grid) {
+            for (int value : row) {
+                if (value > 0) positives++;
+            }
+        }
+        return positives;
+    }
+
+    /**
+     * Marks every cell with a value greater than zero
+     *
+     * @param grid rectangular 2D grid of signed integers
+     * @return the positive cells of the grid
+     */
+    public static PositiveMask of(int[][] grid) {
+        int rows = grid.length;
+        int cols = rows == 0 ? 0 : grid[0].length;
+        PositiveMask mask = empty(rows, cols);
+
+        for (int y = 0; y < rows; y++) {
+            int[] row = grid[y];
+            if (row.length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+
+            int rowStart = y * mask.wordsPerRow;
+            for (int x = 0; x < cols; x++) {
+                if (row[x] > 0) mask.words[rowStart + (x >>> 6)] |= 1L << x;
+            }
+        }
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.POSITIVES_FOUND, mask.positiveCount());
+        return mask;
+    }
+
+    /**
+     * Loads the positives of a csv or binary grid file, validated the same way as GridCellNeighbors.main
+     *
+     * @throws IllegalArgumentException if the file isn't a csv or binary grid, or holds no grid
+     */
+    static PositiveMask read(Path path) throws IOException {
+        String name = path.toString();
+        if (name.endsWith(BinaryGridFormat.EXTENSION)) return BinaryGridFormat.readMask(path);
+        if (!name.endsWith(".csv")) throw new IllegalArgumentException("Expected a csv file but found path given was " + name);
+
+        int[][] grid = MappedCsvParser.parse(path);
+        if (grid.length == 0) throw new IllegalArgumentException("Expected a grid in csv but found none");
+        return of(grid);
+    }
+
+    /**
+     * Marks every cell whose value matches, e.g. the walls of a grid
+     *
+     * @param grid rectangular 2D grid of signed integers
+     * @param matches test of each cell's value
+     * @return mask with the matching cells set
+     */
+    static PositiveMask where(int[][] grid, IntPredicate matches) {
+        int rows = grid.length;
+        int cols = rows == 0 ? 0 : grid[0].length;
+        PositiveMask mask = empty(rows, cols);
+
+        for (int y = 0; y < rows; y++) {
+            int[] row = grid[y];
+            if (row.length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+
+            int rowStart = y * mask.wordsPerRow;
+            for (int x = 0; x < cols; x++) {
+                if (matches.test(row[x])) mask.words[rowStart + (x >>> 6)] |= 1L << x;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Copies any positive cells into a mask, or returns them as is if they already are one
+     *
+     * @throws IllegalArgumentException if the grid has too many cells for a mask
+     */
+    static PositiveMask from(PositiveCells cells) {
+        if (cells instanceof PositiveMask mask) return mask;
+
+        PositiveMask mask = empty(cells.rows(), cells.cols());
+        for (int y = cells.nextPositiveRow(0); y >= 0; y = cells.nextPositiveRow(y + 1)) {
+            for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) {
+                mask.set(y, x);
+            }
+        }
+        return mask;
+    }
+
+    static int wordsPerRow(int cols) {
+        return (cols + 63) >>> 6;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isPositive(int y, int x) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    void set(int y, int x) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Backing words, row y occupying [y * wordsPerRow, (y + 1) * wordsPerRow)
+     */
+    long[] words() {
+        return words;
+    }
+
+    @Override
+    public long positiveCount() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int nextPositiveRow(int fromRow) {
+        for (int y = Math.max(0, fromRow); y < rows; y++) {
+            for (int w = y * wordsPerRow, end = w + wordsPerRow; w < end; w++) {
+                if (words[w] != 0) return y;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextPositive(int y, int fromCol) {
+        if (fromCol >= cols) return -1;
+
+        int from = Math.max(0, fromCol);
+        int rowStart = y * wordsPerRow;
+        int w = from >>> 6;
+        long word = words[rowStart + w] & (-1L << from); // Drop the columns before 'from'
+        while (word == 0) {
+            if (++w == wordsPerRow) return -1;
+            word = words[rowStart + w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Expands the mask back into a grid with 1 for positive cells and 0 elsewhere
+     */
+    int[][] toGrid() {
+        int[][] grid = new int[rows][cols];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                if (isPositive(y, x)) grid[y][x] = 1;
+            }
+        }
+        return grid;
+    }
+}
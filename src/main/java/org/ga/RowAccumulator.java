@@ -0,0 +1,96 @@
+package org.ga;
+
+import java.util.Arrays;
+
+/**
+ * Builds one row of a csv grid from a character or byte scan without creating a String per
+ * value. Plain decimal values ("-12", "+7") are accumulated digit by digit. Anything else is
+ * reported back to the caller, which hands the whole value to parseValue so that odd inputs
+ * behave, and fail, exactly like Integer.parseInt.
+ */
+final class RowAccumulator {
+    private int[] values = new int[16];
+    private int size;
+
+    // State of the value currently being scanned
+    private long magnitude;
+    private boolean negative;
+    private boolean started;
+    private boolean hasDigits;
+
+    /**
+     * @return false if the value no longer fits in an int and must be parsed with parseValue
+     */
+    boolean digit(int digit) {
+        magnitude = magnitude * 10 + digit;
+        started = true;
+        hasDigits = true;
+        return magnitude <= 1L + Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return false if the sign isn't the first character of the value
+     */
+    boolean sign(boolean minus) {
+        if (started) return false;
+        started = true;
+        negative = minus;
+        return true;
+    }
+
+    /**
+     * Completes the current value, ignoring it if it was blank
+     *
+     * @return false if the value isn't a valid int and must be parsed with parseValue
+     */
+    boolean endValue() {
+        if (!started) return true;
+        if (!hasDigits) return false;
+
+        long value = negative ? -magnitude : magnitude;
+        if (value > Integer.MAX_VALUE) return false;
+
+        add((int) value);
+        return true;
+    }
+
+    /**
+     * Slow path for values the scan couldn't handle. Adds the value if Integer.parseInt accepts it
+     *
+     * @param value raw text of the value with whitespace already removed
+     * @throws NumberFormatException with the same message Integer.parseInt gives
+     */
+    void parseValue(String value) {
+        add(Integer.parseInt(value));
+    }
+
+    /**
+     * @return the values of the row, empty if the row held no non-blank values
+     */
+    int[] endRow() {
+        int[] row = Arrays.copyOf(values, size);
+        size = 0;
+        resetValue();
+        return row;
+    }
+
+    private void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, size << 1);
+        values[size++] = value;
+        resetValue();
+    }
+
+    private void resetValue() {
+        magnitude = 0;
+        negative = false;
+        started = false;
+        hasDigits = false;
+    }
+
+    /**
+     * Same characters as \s in a regex, the whitespace removed from every line
+     */
+    static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,15 @@
+package org.ga;
+
+/**
+ * Counts covered cells for a horizontal band of rows of a grid that was bound when the
+ * counter was created. Implementations must be safe to call from several threads at
+ * once for disjoint bands.
+ */
+@FunctionalInterface
+interface RowBandCounter {
+
+    /**
+     * @return number of cells in rows [fromRow, toRow) within range of any positive cell
+     */
+    long countRows(int fromRow, int toRow);
+}
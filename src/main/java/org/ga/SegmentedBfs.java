@@ -0,0 +1,88 @@
+package org.ga;
+
+/**
+ * Multi-source breadth first search for grids of more than 2^31 cells. Works like
+ * FrontierBfs, but cells are packed into long indices, visited cells live in an off heap
+ * bitset and the frontier in an off heap queue, so neither array limits nor the heap cap the
+ * grid size. Positives are read straight from the cells rather than queued, so the queue only
+ * ever holds cells discovered at distance 1 and beyond.
+ */
+final class SegmentedBfs {
+
+    private SegmentedBfs() {
+    }
+
+    /**
+     * Computes the same count as GridCellNeighbors.findTotalCellCountWithinRange
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     */
+    static long count(PositiveCells cells, int n) {
+        return countRows(cells, n, 0, cells.rows());
+    }
+
+    /**
+     * Counts covered cells in rows [fromRow, toRow), searching only the band and a halo of
+     * n rows above and below it
+     *
+     * @param cells positive cells of the grid
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of cells in the band within distance n of any positive cell
+     */
+    static long countRows(PositiveCells cells, int n, int fromRow, int toRow) {
+        if (n < 0 || fromRow >= toRow || cells.cols() == 0) return 0;
+
+        int top = (int) Math.max(0, (long) fromRow - n);
+        int bottom = (int) Math.min(cells.rows(), (long) toRow + n);
+        long width = cells.cols();
+        long height = bottom - top;
+
+        // Mark every positive visited at distance 0
+        OffHeapBits visited = new OffHeapBits(height * width);
+        for (int y = cells.nextPositiveRow(top); y >= 0 && y < bottom; y = cells.nextPositiveRow(y + 1)) {
+            long rowStart = (y - top) * width;
+            for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) {
+                visited.set(rowStart + x);
+            }
+        }
+
+        // Distance 1 comes from the positives themselves, every later level from the queue
+        LongQueue frontier = new LongQueue();
+        if (n > 0) {
+            for (int y = cells.nextPositiveRow(top); y >= 0 && y < bottom; y = cells.nextPositiveRow(y + 1)) {
+                long rowStart = (y - top) * width;
+                for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) {
+                    visitNeighbors(rowStart + x, width, height, visited, frontier);
+                }
+            }
+        }
+
+        for (int distance = 1; distance < n && !frontier.isEmpty(); distance++) {
+            for (long remaining = frontier.size(); remaining > 0; remaining--) {
+                visitNeighbors(frontier.poll(), width, height, visited, frontier);
+            }
+        }
+
+        long covered = visited.countRange((fromRow - top) * width, (toRow - top) * width);
+        if (Metrics.ENABLED) {
+            Metrics.add(Metrics.Counter.CELLS_ENQUEUED, visited.countRange(0, visited.size()));
+            Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        }
+        return covered;
+    }
+
+    /**
+     * Marks the unvisited neighbors of a cell visited and enqueues them
+     */
+    private static void visitNeighbors(long index, long width, long height, OffHeapBits visited, LongQueue frontier) {
+        long y = index / width;
+        long x = index - y * width;
+
+        if (y > 0 && visited.set(index - width)) frontier.add(index - width);
+        if (x > 0 && visited.set(index - 1)) frontier.add(index - 1);
+        if (x < width - 1 && visited.set(index + 1)) frontier.add(index + 1);
+        if (y < height - 1 && visited.set(index + width)) frontier.add(index + width);
+    }
+}
@@ -0,0 +1,116 @@
+package org.ga;
+
+/**
+ * Positive cells stored like a PositiveMask, one bit per cell with every row starting on a
+ * fresh long word, but held off heap in segments so the grid may have far more than 2^31
+ * cells. Holds rows x ceil(cols / 64) x 8 bytes of direct memory.
+ */
+public final class SegmentedMask implements PositiveCells {
+    private final int rows;
+    private final int cols;
+    private final int wordsPerRow;
+    private final OffHeapBits words;
+
+    private SegmentedMask(int rows, int cols) {
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("Grid can't have " + rows + "x" + cols + " cells");
+        this.rows = rows;
+        this.cols = cols;
+        this.wordsPerRow = PositiveMask.wordsPerRow(cols);
+        this.words = new OffHeapBits((long) rows * wordsPerRow * Long.SIZE);
+    }
+
+    /**
+     * Creates an empty mask with no positive cells
+     */
+    public static SegmentedMask empty(int rows, int cols) {
+        return new SegmentedMask(rows, cols);
+    }
+
+    /**
+     * Copies any positive cells into an off heap mask, or returns them as is if they already are one
+     */
+    public static SegmentedMask of(PositiveCells cells) {
+        if (cells instanceof SegmentedMask mask) return mask;
+
+        SegmentedMask mask = empty(cells.rows(), cells.cols());
+        for (int y = cells.nextPositiveRow(0); y >= 0; y = cells.nextPositiveRow(y + 1)) {
+            for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) {
+                mask.set(y, x);
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isPositive(int y, int x) {
+        return words.get(bit(y, x));
+    }
+
+    /**
+     * Marks the cell at y,x positive
+     */
+    public void set(int y, int x) {
+        words.set(bit(y, x));
+    }
+
+    int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Word w of row y, bit x of the row living in bit x % 64 of word x / 64
+     */
+    long word(int y, int w) {
+        return words.word((long) y * wordsPerRow + w);
+    }
+
+    void setWord(int y, int w, long word) {
+        words.setWord((long) y * wordsPerRow + w, word);
+    }
+
+    @Override
+    public long positiveCount() {
+        return words.countRange(0, words.size());
+    }
+
+    @Override
+    public int nextPositiveRow(int fromRow) {
+        for (int y = Math.max(0, fromRow); y < rows; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                if (word(y, w) != 0) return y;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextPositive(int y, int fromCol) {
+        if (fromCol >= cols) return -1;
+
+        int from = Math.max(0, fromCol);
+        int w = from >>> 6;
+        long word = word(y, w) & (-1L << from); // Drop the columns before 'from'
+        while (word == 0) {
+            if (++w == wordsPerRow) return -1;
+            word = word(y, w);
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private long bit(int y, int x) {
+        if (y < 0 || y >= rows || x < 0 || x >= cols) {
+            throw new IndexOutOfBoundsException("Cell " + y + "," + x + " is outside the " + rows + "x" + cols + " grid");
+        }
+        return ((long) y * wordsPerRow << 6) + x;
+    }
+}
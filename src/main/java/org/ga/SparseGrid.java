@@ -0,0 +1,230 @@
+package org.ga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Positive cells of a grid stored as a sorted list of coordinates, grouped by row. Memory
+ * grows with the number of positives, about 4 bytes each plus 8 per row holding any, and
+ * not with rows x cols, so a 1M x 1M grid with a few million positives fits easily.
+ * Empty cells cost nothing. Immutable, build one with a Builder or one of the adapters.
+ */
+public final class SparseGrid implements PositiveCells {
+    private final int rows;
+    private final int cols;
+    private final int[] rowIds;     // Row index of each non-empty row, increasing
+    private final int[] rowOffsets; // Columns of rowIds[i] are xs[rowOffsets[i] .. rowOffsets[i + 1])
+    private final int[] xs;         // Columns of positive cells, increasing within each row
+
+    private SparseGrid(int rows, int cols, int[] rowIds, int[] rowOffsets, int[] xs) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowIds = rowIds;
+        this.rowOffsets = rowOffsets;
+        this.xs = xs;
+    }
+
+    /**
+     * Starts an empty grid of the given size
+     */
+    public static Builder builder(int rows, int cols) {
+        return new Builder(rows, cols);
+    }
+
+    /**
+     * Keeps only the positive cells of a grid
+     *
+     * @param grid rectangular 2D grid of signed integers
+     * @return the positive cells of the grid
+     */
+    public static SparseGrid of(int[][] grid) {
+        int cols = grid.length == 0 ? 0 : grid[0].length;
+        Builder builder = builder(grid.length, cols);
+        for (int y = 0; y < grid.length; y++) {
+            if (grid[y].length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+            for (int x = 0; x < cols; x++) {
+                if (grid[y][x] > 0) builder.add(y, x);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copies any positive cells into a sparse grid, or returns them as is if they already are one
+     */
+    public static SparseGrid of(PositiveCells cells) {
+        if (cells instanceof SparseGrid sparse) return sparse;
+
+        Builder builder = builder(cells.rows(), cells.cols());
+        for (int y = cells.nextPositiveRow(0); y >= 0; y = cells.nextPositiveRow(y + 1)) {
+            for (int x = cells.nextPositive(y, 0); x >= 0; x = cells.nextPositive(y, x + 1)) {
+                builder.add(y, x);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a csv grid one row at a time, keeping only its positive cells in memory.
+     * Parsed and validated the same way as GridCellNeighbors.main
+     *
+     * @param csv path to a csv grid
+     * @throws NumberFormatException if a csv value isn't an integer
+     */
+    public static SparseGrid readCsv(Path csv) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            GrowableLongs cells = new GrowableLongs();
+            int rows = 0;
+            int cols = -1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int[] row = CsvRowParser.parseRow(line);
+                if (row.length == 0) continue; // Only count rows that have non-blank values
+
+                if (cols < 0) cols = row.length;
+                else if (row.length != cols) throw new IllegalArgumentException("All rows in grid need to have the same length");
+
+                for (int x = 0; x < row.length; x++) {
+                    if (row[x] > 0) cells.add(pack(rows, x));
+                }
+                rows++;
+            }
+            if (rows == 0) throw new IllegalArgumentException("Expected a grid in csv but found none");
+
+            return fromSortedCells(rows, cols, cells);
+        }
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isPositive(int y, int x) {
+        Objects.checkIndex(y, rows);
+        Objects.checkIndex(x, cols);
+        int row = Arrays.binarySearch(rowIds, y);
+        return row >= 0 && Arrays.binarySearch(xs, rowOffsets[row], rowOffsets[row + 1], x) >= 0;
+    }
+
+    @Override
+    public long positiveCount() {
+        return xs.length;
+    }
+
+    @Override
+    public int nextPositiveRow(int fromRow) {
+        int row = insertionPoint(Arrays.binarySearch(rowIds, Math.max(0, fromRow)));
+        return row < rowIds.length ? rowIds[row] : -1;
+    }
+
+    @Override
+    public int nextPositive(int y, int fromCol) {
+        int row = Arrays.binarySearch(rowIds, y);
+        if (row < 0) return -1;
+
+        int i = insertionPoint(Arrays.binarySearch(xs, rowOffsets[row], rowOffsets[row + 1], Math.max(0, fromCol)));
+        return i < rowOffsets[row + 1] ? xs[i] : -1;
+    }
+
+    /**
+     * Shares the coordinates with the diamond union engine, without copying them
+     */
+    DiamondUnion.PositiveRows positiveRows() {
+        return new DiamondUnion.PositiveRows(cols, rowIds, rowOffsets, xs);
+    }
+
+    private static int insertionPoint(int binarySearchResult) {
+        return binarySearchResult >= 0 ? binarySearchResult : -binarySearchResult - 1;
+    }
+
+    private static long pack(int y, int x) {
+        return ((long) y << 32) | x;
+    }
+
+    /**
+     * Groups packed cells, already sorted by row then column and without duplicates, by row
+     */
+    private static SparseGrid fromSortedCells(int rows, int cols, GrowableLongs cells) {
+        int nonEmptyRows = 0;
+        for (int i = 0; i < cells.size; i++) {
+            if (i == 0 || (cells.values[i] >>> 32) != (cells.values[i - 1] >>> 32)) nonEmptyRows++;
+        }
+
+        int[] rowIds = new int[nonEmptyRows];
+        int[] rowOffsets = new int[nonEmptyRows + 1];
+        int[] xs = new int[cells.size];
+        int row = -1;
+        for (int i = 0; i < cells.size; i++) {
+            int y = (int) (cells.values[i] >>> 32);
+            if (row < 0 || rowIds[row] != y) {
+                rowIds[++row] = y;
+                rowOffsets[row] = i;
+            }
+            xs[i] = (int) cells.values[i];
+        }
+        rowOffsets[nonEmptyRows] = cells.size;
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.POSITIVES_FOUND, xs.length);
+        return new SparseGrid(rows, cols, rowIds, rowOffsets, xs);
+    }
+
+    /**
+     * Collects positive cells in any order. Adding the same cell twice keeps it once
+     */
+    public static final class Builder {
+        private final int rows;
+        private final int cols;
+        private final GrowableLongs cells = new GrowableLongs();
+
+        private Builder(int rows, int cols) {
+            if (rows < 0 || cols < 0) throw new IllegalArgumentException("Grid can't have " + rows + "x" + cols + " cells");
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        /**
+         * Marks the cell at y,x positive
+         */
+        public Builder add(int y, int x) {
+            Objects.checkIndex(y, rows);
+            Objects.checkIndex(x, cols);
+            cells.add(pack(y, x));
+            return this;
+        }
+
+        public SparseGrid build() {
+            // Packed cells sort by row then column
+            Arrays.sort(cells.values, 0, cells.size);
+            int unique = 0;
+            for (int i = 0; i < cells.size; i++) {
+                if (unique == 0 || cells.values[i] != cells.values[unique - 1]) cells.values[unique++] = cells.values[i];
+            }
+            cells.size = unique;
+            return fromSortedCells(rows, cols, cells);
+        }
+    }
+
+    private static final class GrowableLongs {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                if (size >= Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Sparse grid can hold at most " + size + " positive cells");
+                values = Arrays.copyOf(values, (int) Math.min(Integer.MAX_VALUE - 8, (long) size << 1));
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.ga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Counts covered cells while reading a csv grid one row at a time, without ever
+ * materializing the grid. Only the x values of positives in the last 2n + 1 rows
+ * are kept. Row r is counted, as a union of diamond slices, as soon as row r + n
+ * has been read, and the remaining rows are counted at the end of the input.
+ * Memory is bounded by the positives in the window instead of rows x cols.
+ */
+final class StreamingGridCounter {
+    private final int n;
+    private final ArrayDeque<PositiveRow> window = new ArrayDeque<>(); // Non-empty rows, oldest first
+    private final DiamondUnion.IntervalBuffer intervals = new DiamondUnion.IntervalBuffer();
+    private int width = -1;
+    private int rowsRead;
+    private int nextRowToCount;
+    private long covered;
+
+    private StreamingGridCounter(int n) {
+        this.n = n;
+    }
+
+    /**
+     * Reads the whole csv and counts the cells within distance n of any positive cell.
+     * Rows are parsed and validated the same way as GridCellNeighbors.main
+     *
+     * @param reader csv grid, one row per line
+     * @param n Maximum Manhattan distance from any positive cell
+     * @return Count of unique cells within distance n of any positive cell
+     * @throws NumberFormatException if a value isn't an integer
+     */
+    static long count(BufferedReader reader, int n) throws IOException {
+        StreamingGridCounter counter = new StreamingGridCounter(n);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int[] row = CsvRowParser.parseRow(line);
+            if (row.length > 0) counter.addRow(row); // Only count rows that have non-blank values
+        }
+
+        return counter.finish();
+    }
+
+    private void addRow(int[] row) {
+        if (width < 0) width = row.length;
+        else if (row.length != width) throw new IllegalArgumentException("All rows in grid need to have the same length");
+
+        int positives = 0;
+        for (int value : row) {
+            if (value > 0) positives++;
+        }
+        if (positives > 0) {
+            int[] xs = new int[positives];
+            for (int x = 0, next = 0; x < row.length; x++) {
+                if (row[x] > 0) xs[next++] = x;
+            }
+            window.addLast(new PositiveRow(rowsRead, xs));
+        }
+        rowsRead++;
+
+        // Every positive that can reach row (rowsRead - 1 - n) has now been read
+        while ((long) nextRowToCount + n < rowsRead) countNextRow();
+    }
+
+    private long finish() {
+        if (rowsRead == 0) throw new IllegalArgumentException("Expected a grid in csv but found none");
+
+        while (nextRowToCount < rowsRead) countNextRow();
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        return covered;
+    }
+
+    private void countNextRow() {
+        int r = nextRowToCount++;
+
+        // Rows more than n above r can't reach r or any later row
+        while (!window.isEmpty() && (long) window.peekFirst().y + n < r) window.pollFirst();
+
+        intervals.clear();
+        for (PositiveRow positiveRow : window) {
+            if ((long) r + n < positiveRow.y) break;
+
+            // Half width of the diamond slice. Each end is clipped to the grid before it's
+            // added, so a positive near column Integer.MAX_VALUE can't overflow
+            int half = n - Math.abs(r - positiveRow.y);
+            for (int x : positiveRow.xs) {
+                intervals.add(x - Math.min(half, x), x + Math.min(half, width - 1 - x));
+            }
+        }
+        covered += intervals.mergedLength();
+    }
+
+    /**
+     * x values of the positive cells in row y
+     */
+    private record PositiveRow(int y, int[] xs) {
+    }
+}
@@ -0,0 +1,125 @@
+package org.ga;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Coverage where each positive cell reaches its own Manhattan radius, radius(grid[y][x]), instead
+ * of one global n. A cell is covered when some positive p has radius(p) - distance(p, cell) >= 0.
+ *
+ * That largest remaining radius is found for every cell with the two raster passes of
+ * DistanceTransform run in max-plus form: each cell keeps the larger of its own remaining radius
+ * and one less than a neighbor's. Every positive reaches every cell along a path the passes follow,
+ * so the result is exact in O(rows x cols) however many positives there are or how large the radii
+ * are, where a search per positive would be O(positives x radius^2).
+ */
+final class VariableRadiusCoverage {
+
+    /**
+     * Remaining radius of cells no positive reaches
+     */
+    static final int UNCOVERED = -1;
+
+    private VariableRadiusCoverage() {
+    }
+
+    /**
+     * @param radius radius of a positive cell given its value, never negative
+     * @return Count of unique cells within the radius of any positive cell
+     */
+    static long count(int[][] grid, IntUnaryOperator radius) {
+        int[] remaining = remaining(grid, radius);
+        long covered = 0;
+        for (int value : remaining) {
+            if (value != UNCOVERED) covered++;
+        }
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        return covered;
+    }
+
+    /**
+     * @param radius radius of a positive cell given its value, never negative
+     * @param weights weight of every cell, the same size as grid
+     * @return Sum of the weights of the unique cells within the radius of any positive cell
+     */
+    static long sum(int[][] grid, IntUnaryOperator radius, int[][] weights) {
+        if (weights.length != grid.length) {
+            throw new IllegalArgumentException("Weights with " + weights.length + " rows don't match a grid with " + grid.length + " rows");
+        }
+        int[] remaining = remaining(grid, radius);
+        int width = remaining.length == 0 ? 0 : remaining.length / grid.length;
+
+        long covered = 0;
+        long total = 0;
+        for (int y = 0; y < grid.length; y++) {
+            if (weights[y].length != width) {
+                throw new IllegalArgumentException("Weights row " + y + " has " + weights[y].length + " values but the grid has " + width + " columns");
+            }
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                if (remaining[rowStart + x] == UNCOVERED) continue;
+                covered++;
+                total += weights[y][x];
+            }
+        }
+
+        if (Metrics.ENABLED) Metrics.add(Metrics.Counter.CELLS_COVERED, covered);
+        return total;
+    }
+
+    /**
+     * Computes, for every cell, the most radius any positive has left on reaching it
+     *
+     * @return row-major remaining radii, UNCOVERED where no positive reaches
+     * @throws IllegalArgumentException if the grid is jagged, too large for a flat array, or a radius is negative
+     */
+    static int[] remaining(int[][] grid, IntUnaryOperator radius) {
+        int rows = grid.length;
+        int width = rows == 0 ? 0 : grid[0].length;
+        if ((long) rows * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid with " + rows + "x" + width + " cells is too large for a flat radius array");
+        }
+
+        int[] remaining = new int[rows * width];
+        for (int y = 0; y < rows; y++) {
+            if (grid[y].length != width) {
+                throw new IllegalArgumentException("Expected every row to have " + width + " values but row " + y + " has " + grid[y].length);
+            }
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                int value = grid[y][x];
+                if (value <= 0) {
+                    remaining[rowStart + x] = UNCOVERED;
+                    continue;
+                }
+                int r = radius.applyAsInt(value);
+                if (r < 0) throw new IllegalArgumentException("Radius of the positive cell at " + y + "," + x + " with value " + value + " cannot be negative but was " + r);
+                remaining[rowStart + x] = r;
+            }
+        }
+
+        // Forward pass pulls from above and left, backward from below and right. A neighbor with
+        // nothing left (0 or UNCOVERED) can't extend coverage, so subtracting 1 never goes below 0
+        for (int y = 0; y < rows; y++) {
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = rowStart + x;
+                int best = remaining[i];
+                if (y > 0) best = Math.max(best, remaining[i - width] - 1);
+                if (x > 0) best = Math.max(best, remaining[i - 1] - 1);
+                remaining[i] = best;
+            }
+        }
+        for (int y = rows - 1; y >= 0; y--) {
+            int rowStart = y * width;
+            for (int x = width - 1; x >= 0; x--) {
+                int i = rowStart + x;
+                int best = remaining[i];
+                if (y < rows - 1) best = Math.max(best, remaining[i + width] - 1);
+                if (x < width - 1) best = Math.max(best, remaining[i + 1] - 1);
+                remaining[i] = best;
+            }
+        }
+        return remaining;
+    }
+}
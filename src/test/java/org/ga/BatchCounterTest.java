@@ -0,0 +1,83 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BatchCounterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDirectoryCountsEveryGridForEveryDistance() throws IOException {
+        Files.writeString(dir.resolve("a.csv"), "0,1,0\n-1,0,2\n0,0,0");
+        Files.writeString(dir.resolve("b.csv"), "1,0,0\n0,0,0\n0,0,0");
+        Files.writeString(dir.resolve("notes.txt"), "not a grid");
+        Path out = dir.resolve("out.tsv");
+
+        List<BatchCounter.Job> jobs = BatchCounter.fromDirectory(dir, new int[]{0, 1});
+        BatchCounter.Summary summary = new BatchCounter(2, 2, null).run(jobs, out);
+
+        assertEquals(new BatchCounter.Summary(2, 0, 4), summary);
+        assertEquals(List.of(
+                dir.resolve("a.csv") + "\t0\t2",
+                dir.resolve("a.csv") + "\t1\t6",
+                dir.resolve("b.csv") + "\t0\t1",
+                dir.resolve("b.csv") + "\t1\t3"), Files.readAllLines(out));
+    }
+
+    @Test
+    public void testManifestGroupsDistancesPerFile() throws IOException {
+        Files.writeString(dir.resolve("a.csv"), "0,1,0\n-1,0,2\n0,0,0");
+        Path manifest = dir.resolve("jobs.txt");
+        Files.writeString(manifest, "# nightly\na.csv,1\n\nmissing.csv,2\na.csv, 0\na.csv,1\n");
+
+        List<BatchCounter.Job> jobs = BatchCounter.readManifest(manifest);
+        assertEquals(2, jobs.size());
+        assertEquals(dir.resolve("a.csv"), jobs.get(0).grid());
+        assertArrayEquals(new int[]{1, 0}, jobs.get(0).distances());
+
+        Path out = dir.resolve("out.tsv");
+        BatchCounter.Summary summary = new BatchCounter(1, 1, CountingEngine.FRONTIER_BFS).run(jobs, out);
+
+        assertEquals(new BatchCounter.Summary(2, 1, 3), summary);
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(dir.resolve("a.csv") + "\t1\t6", lines.get(0));
+        assertEquals(dir.resolve("a.csv") + "\t0\t2", lines.get(1));
+        assertTrue(lines.get(2).startsWith(dir.resolve("missing.csv") + "\terror\t"), lines.get(2));
+        assertTrue(lines.get(2).contains("No such file or directory"), lines.get(2));
+    }
+
+    @Test
+    public void testBadGridDoesNotStopTheBatch() throws IOException {
+        for (int i = 0; i < 30; i++) {
+            Files.writeString(dir.resolve(String.format("grid%02d.csv", i)), i % 7 == 3 ? "1,x\n0,0" : "1,0\n0," + i);
+        }
+        Path out = dir.resolve("out.tsv");
+
+        BatchCounter.Summary summary = new BatchCounter(3, 2, null).run(BatchCounter.fromDirectory(dir, new int[]{1}), out);
+
+        assertEquals(30, summary.grids());
+        assertEquals(4, summary.failed());
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(30, lines.size());
+        assertEquals(dir.resolve("grid03.csv") + "\terror\tExpected csv with only numbers separated by commas but failed to parse: For input string: \"x\"", lines.get(3));
+        assertEquals(dir.resolve("grid04.csv") + "\t1\t4", lines.get(4));
+    }
+
+    @Test
+    public void testMalformedManifestLine_throwsException() throws IOException {
+        Path manifest = dir.resolve("jobs.txt");
+        Files.writeString(manifest, "a.csv,1\na.csv,far\n");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> BatchCounter.readManifest(manifest));
+        assertEquals("Expected an integer distance on line 2 of " + manifest + " but found far", e.getMessage());
+    }
+}
@@ -0,0 +1,153 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class BinaryGridFormatTest {
+
+    static Path tempCsv;
+    static Path tempBinary;
+
+    @BeforeEach
+    void createFiles() throws IOException {
+        tempCsv = Files.createTempFile("binary-grid", ".csv");
+        tempBinary = Files.createTempFile("binary-grid", BinaryGridFormat.EXTENSION);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempCsv);
+        Files.deleteIfExists(tempBinary);
+    }
+
+    private static int[][] randomGrid(Random random, int height, int width) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextInt(21) - 15;
+            }
+        }
+        return grid;
+    }
+
+    private static void assertSameMask(PositiveMask expected, PositiveMask actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.cols(), actual.cols());
+        assertArrayEquals(expected.words(), actual.words());
+    }
+
+    @Test
+    public void testInt32RoundTrip() throws IOException {
+        int[][] grid = randomGrid(new Random(1), 17, 130);
+        BinaryGridFormat.write(grid, tempBinary, BinaryGridFormat.Encoding.INT32);
+
+        assertEquals(BinaryGridFormat.Encoding.INT32, BinaryGridFormat.readEncoding(tempBinary));
+        assertArrayEquals(grid, BinaryGridFormat.readGrid(tempBinary));
+        assertSameMask(PositiveMask.of(grid), BinaryGridFormat.readMask(tempBinary));
+    }
+
+    @Test
+    public void testPositiveMaskRoundTrip() throws IOException {
+        int[][] grid = randomGrid(new Random(2), 9, 65);
+        BinaryGridFormat.write(grid, tempBinary, BinaryGridFormat.Encoding.POSITIVE_MASK);
+
+        assertEquals(BinaryGridFormat.Encoding.POSITIVE_MASK, BinaryGridFormat.readEncoding(tempBinary));
+        assertEquals(16 + 9 * 2 * 8, Files.size(tempBinary));
+        assertSameMask(PositiveMask.of(grid), BinaryGridFormat.readMask(tempBinary));
+    }
+
+    @Test
+    public void testConvertCsvMatchesParsedCsv() throws IOException {
+        Files.writeString(tempCsv, "0, 1, 0\n\n-1, 0, 2\n0, 0, 0\n");
+        BinaryGridFormat.convertCsv(tempCsv, tempBinary, BinaryGridFormat.Encoding.INT32);
+
+        assertArrayEquals(new int[][]{{0, 1, 0}, {-1, 0, 2}, {0, 0, 0}}, BinaryGridFormat.readGrid(tempBinary));
+    }
+
+    @Test
+    public void testEnginesCountLoadedMaskLikeLegacy() throws IOException {
+        int[][] grid = new int[11][11];
+        grid[7][3] = 1;
+        grid[6][5] = 1;
+        BinaryGridFormat.write(grid, tempBinary, BinaryGridFormat.Encoding.POSITIVE_MASK);
+        PositiveMask mask = BinaryGridFormat.readMask(tempBinary);
+
+        for (CountingEngine engine : CountingEngine.values()) {
+            assertEquals(22, GridCellNeighbors.findTotalCellCountWithinRange(mask, 2, engine), engine.name());
+        }
+    }
+
+    @Test
+    public void testReadGridFromMask_throwsException() throws IOException {
+        BinaryGridFormat.write(new int[][]{{1}}, tempBinary, BinaryGridFormat.Encoding.POSITIVE_MASK);
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> BinaryGridFormat.readGrid(tempBinary));
+        assertTrue(e.getMessage().contains("only stores a positive mask"));
+    }
+
+    @Test
+    public void testReadNonBinaryFile_throwsException() throws IOException {
+        Files.writeString(tempBinary, "1,0,0\n0,1,0\n0,0,1\n");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> BinaryGridFormat.readMask(tempBinary));
+        assertTrue(e.getMessage().contains("doesn't start with GCNB"));
+    }
+
+    @Test
+    public void testConvertCsvRowsNotEqual_throwsException() throws IOException {
+        Files.writeString(tempCsv, "1,0,0\n0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                BinaryGridFormat.convertCsv(tempCsv, tempBinary, BinaryGridFormat.Encoding.INT32));
+        assertTrue(e.getMessage().contains("All rows in grid need to have the same length"));
+    }
+
+    @Test
+    public void testFailedConvertLeavesOutputUntouched() throws IOException {
+        BinaryGridFormat.write(new int[][]{{1, 0}, {0, 1}}, tempBinary, BinaryGridFormat.Encoding.INT32);
+        byte[] before = Files.readAllBytes(tempBinary);
+        Files.writeString(tempCsv, "1,0\n0,1\n1,a\n");
+
+        assertThrows(NumberFormatException.class, () ->
+                BinaryGridFormat.convertCsv(tempCsv, tempBinary, BinaryGridFormat.Encoding.INT32));
+
+        assertArrayEquals(before, Files.readAllBytes(tempBinary));
+        assertFalse(Files.exists(tempBinary.resolveSibling(tempBinary.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void testMaskBitsPastLastColumnAreIgnored() throws IOException {
+        BinaryGridFormat.write(new int[][]{{0, 1, 0}, {0, 0, 0}}, tempBinary, BinaryGridFormat.Encoding.POSITIVE_MASK);
+        // Corrupt the padding of both rows' only word
+        try (FileChannel channel = FileChannel.open(tempBinary, StandardOpenOption.WRITE)) {
+            ByteBuffer words = ByteBuffer.allocate(2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0b10L | 1L << 40).putLong(1L << 63).flip();
+            channel.write(words, BinaryGridFormat.HEADER_BYTES);
+        }
+
+        assertEquals(1, BinaryGridFormat.readMask(tempBinary).positiveCount());
+        assertEquals(1, BinaryGridFormat.readSegmentedMask(tempBinary).positiveCount());
+        assertEquals(1, BinaryGridFormat.readSparse(tempBinary).positiveCount());
+    }
+
+    @Test
+    public void testInt32RowsTooWide_throwsException() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BinaryGridFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .put(new byte[]{'G', 'C', 'N', 'B', 1, 0, 0, 0}).putInt(1).putInt(Integer.MAX_VALUE / 2).flip();
+        try (FileChannel channel = FileChannel.open(tempBinary, StandardOpenOption.WRITE)) {
+            channel.write(header);
+        }
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> BinaryGridFormat.readGrid(tempBinary));
+        assertTrue(e.getMessage().contains("too wide"));
+    }
+}
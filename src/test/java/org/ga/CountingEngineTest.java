@@ -0,0 +1,147 @@
+package org.ga;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountingEngineTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveDensity) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double roll = random.nextDouble();
+                if (roll < positiveDensity) grid[y][x] = 1 + random.nextInt(9);
+                else if (roll < positiveDensity * 2) grid[y][x] = -1 - random.nextInt(9);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void testAllEnginesMatchLegacyOnRandomGrids() {
+        Random random = new Random(42);
+        double[] densities = {0.0, 0.01, 0.05, 0.3, 1.0};
+
+        for (int trial = 0; trial < 200; trial++) {
+            int height = 1 + random.nextInt(30);
+            int width = 1 + random.nextInt(30);
+            int[][] grid = randomGrid(random, height, width, densities[trial % densities.length]);
+            int n = random.nextInt(height + width + 2);
+
+            int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+            for (CountingEngine engine : CountingEngine.values()) {
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(grid, n, engine),
+                        engine + " on " + height + "x" + width + " grid with n=" + n);
+            }
+        }
+    }
+
+    @Test
+    public void testAllEnginesMatchAcrossWordBoundaries() {
+        Random random = new Random(64);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int trial = 0; trial < 20; trial++) {
+                int height = 1 + random.nextInt(12);
+                int width = 60 + random.nextInt(200);
+                int[][] grid = randomGrid(random, height, width, 0.005 + random.nextDouble() * 0.02);
+                int n = random.nextInt(70);
+
+                int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n, CountingEngine.DIAMOND_UNION);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(grid, n, CountingEngine.BITSET_DILATION), "trial " + trial);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRangeInParallel(grid, n, CountingEngine.BITSET_DILATION, pool), "trial " + trial);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(grid, n, CountingEngine.FRONTIER_BFS), "trial " + trial);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelBandsMatchLegacyOnRandomGrids() {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 100; trial++) {
+                int height = 1 + random.nextInt(40);
+                int width = 1 + random.nextInt(20);
+                int[][] grid = randomGrid(random, height, width, 0.02 + random.nextDouble() * 0.1);
+                int n = random.nextInt(height + 2);
+
+                int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+                for (CountingEngine engine : CountingEngine.values()) {
+                    if (!engine.supportsRowBands()) continue;
+                    assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRangeInParallel(grid, n, engine, pool),
+                            engine + " in parallel on " + height + "x" + width + " grid with n=" + n);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelBandsAtLeastNRowsTall() {
+        assertEquals(25, ParallelBands.bandRows(400, 3, 4));
+        assertEquals(100, ParallelBands.bandRows(400, 100, 4));
+        assertEquals(1, ParallelBands.bandRows(3, 0, 4));
+
+        // n far beyond the height of the grid leaves a single band, counted like the sequential path
+        int[][] grid = new int[12][300];
+        grid[0][0] = 1;
+        grid[11][299] = 1;
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            for (CountingEngine engine : CountingEngine.values()) {
+                if (!engine.supportsRowBands()) continue;
+                assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, 250),
+                        GridCellNeighbors.findTotalCellCountWithinRangeInParallel(grid, 250, engine, pool), engine.name());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelLegacyEngine_throwsException() {
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.findTotalCellCountWithinRangeInParallel(new int[][]{{1}}, 1, CountingEngine.LEGACY_BFS));
+        assertTrue(e.getMessage().contains("cannot count row bands in parallel"));
+
+        e = assertThrows(IllegalArgumentException.class, () -> CountingEngine.LEGACY_BFS.rowBandCounter(PositiveMask.of(new int[][]{{1}}), 1));
+        assertTrue(e.getMessage().contains("cannot count row bands in parallel"));
+    }
+
+    @Test
+    public void testAllEnginesHandleSingleCellGrid() {
+        for (CountingEngine engine : CountingEngine.values()) {
+            assertEquals(1, GridCellNeighbors.findTotalCellCountWithinRange(new int[][]{{5}}, 3, engine), engine.name());
+            assertEquals(0, GridCellNeighbors.findTotalCellCountWithinRange(new int[][]{{0}}, 3, engine), engine.name());
+        }
+    }
+
+    @Test
+    public void testAllEnginesHandleHugeDistance() {
+        int[][] grid = new int[4][7];
+        grid[3][6] = 1;
+        for (CountingEngine engine : CountingEngine.values()) {
+            assertEquals(28, GridCellNeighbors.findTotalCellCountWithinRange(grid, Integer.MAX_VALUE, engine), engine.name());
+        }
+    }
+
+    @Test
+    public void testFromNameIgnoresCaseAndDashes() {
+        assertEquals(CountingEngine.FRONTIER_BFS, CountingEngine.fromName("frontier-bfs"));
+        assertEquals(CountingEngine.LEGACY_BFS, CountingEngine.fromName("Legacy_BFS"));
+    }
+
+    @Test
+    public void testFromNameUnknownEngine_throwsException() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> CountingEngine.fromName("quantum"));
+        assertTrue(e.getMessage().contains("Unknown engine quantum"));
+    }
+}
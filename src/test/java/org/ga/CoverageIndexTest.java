@@ -0,0 +1,66 @@
+package org.ga;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoverageIndexTest {
+
+    @Test
+    public void testInitialCountMatchesLegacy() {
+        Random random = new Random(9);
+        for (int trial = 0; trial < 100; trial++) {
+            int height = 1 + random.nextInt(20);
+            int width = 1 + random.nextInt(20);
+            int[][] grid = new int[height][width];
+            double density = trial % 2 == 0 ? 0.02 : 0.6; // Exercises both ways of building the index
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (random.nextDouble() < density) grid[y][x] = 1;
+                }
+            }
+            int n = random.nextInt(height + width);
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n),
+                    GridCellNeighbors.indexCellsWithinRange(grid, n).coveredCount(), height + "x" + width + " grid with n=" + n);
+        }
+    }
+
+    @Test
+    public void testUpdatesMatchFullRecount() {
+        Random random = new Random(10);
+        int[][] grid = new int[15][23];
+        int n = 3;
+        CoverageIndex index = CoverageIndex.of(grid, n);
+
+        for (int step = 0; step < 500; step++) {
+            int y = random.nextInt(grid.length);
+            int x = random.nextInt(grid[0].length);
+            int value = random.nextInt(5) - 2;
+            grid[y][x] = value;
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), index.setCell(y, x, value), "step " + step);
+        }
+    }
+
+    @Test
+    public void testIsCoveredFollowsUpdates() {
+        CoverageIndex index = CoverageIndex.of(new int[5][5], 1);
+        assertFalse(index.isCovered(2, 3));
+
+        assertEquals(5, index.setCell(2, 2, 7));
+        assertTrue(index.isCovered(2, 3));
+        assertEquals(5, index.setCell(2, 2, 3)); // Still positive, nothing changes
+
+        assertEquals(0, index.setCell(2, 2, -1));
+        assertFalse(index.isCovered(2, 3));
+    }
+
+    @Test
+    public void testSetCellOutOfBounds_throwsException() {
+        CoverageIndex index = CoverageIndex.of(new int[2][2], 1);
+        assertThrows(IndexOutOfBoundsException.class, () -> index.setCell(2, 0, 1));
+    }
+}
@@ -0,0 +1,105 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class CoverageMaskTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 : -random.nextInt(3);
+            }
+        }
+        return grid;
+    }
+
+    private static boolean isCoveredByBruteForce(int[][] grid, int n, int y, int x) {
+        for (int py = 0; py < grid.length; py++) {
+            for (int px = 0; px < grid[0].length; px++) {
+                if (grid[py][px] > 0 && Math.abs(py - y) + Math.abs(px - x) <= n) return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testCoveredCellsMatchBruteForce() {
+        Random random = new Random(31);
+        for (int trial = 0; trial < 40; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(15), 1 + random.nextInt(90), random.nextDouble() * 0.08);
+            int n = random.nextInt(10);
+            CoverageMask coverage = GridCellNeighbors.findCellsWithinRange(grid, n);
+            PositiveMask bits = coverage.toMask();
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), coverage.coveredCount(), "trial " + trial);
+            assertEquals(coverage.coveredCount(), bits.positiveCount(), "trial " + trial);
+            for (int y = 0; y < grid.length; y++) {
+                for (int x = 0; x < grid[0].length; x++) {
+                    boolean expected = isCoveredByBruteForce(grid, n, y, x);
+                    assertEquals(expected, coverage.isCovered(y, x), "trial " + trial + " cell " + y + "," + x);
+                    assertEquals(expected, bits.isPositive(y, x), "trial " + trial + " cell " + y + "," + x);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRunsOfSingleDiamond() {
+        int[][] grid = new int[5][7];
+        grid[2][3] = 1;
+        CoverageMask coverage = GridCellNeighbors.findCellsWithinRange(grid, 2);
+
+        int[][] expectedRuns = {{3, 3}, {2, 4}, {1, 5}, {2, 4}, {3, 3}};
+        for (int y = 0; y < 5; y++) {
+            assertEquals(1, coverage.runCount(y));
+            assertArrayEquals(expectedRuns[y], new int[]{coverage.runStart(y, 0), coverage.runEnd(y, 0)});
+        }
+        assertEquals(0, GridCellNeighbors.findCellsWithinRange(grid, -1).coveredCount());
+    }
+
+    @Test
+    public void testHugeSparseGridStaysSmall() {
+        SparseGrid sparse = SparseGrid.builder(1_000_000, 1_000_000).add(10, 10).add(999_999, 999_999).build();
+        CoverageMask coverage = GridCellNeighbors.findCellsWithinRange(sparse, 100);
+
+        assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(sparse, 100, CountingEngine.DIAMOND_UNION), coverage.coveredCount());
+        assertTrue(coverage.isCovered(110, 10));
+        assertFalse(coverage.isCovered(111, 10));
+        assertEquals(0, coverage.runCount(500_000));
+    }
+
+    @Test
+    public void testWriteThenRead() throws IOException {
+        int[][] grid = randomGrid(new Random(32), 40, 300, 0.01);
+        CoverageMask coverage = GridCellNeighbors.findCellsWithinRange(grid, 3);
+        Path file = Files.createTempFile("coverage", CoverageMask.EXTENSION);
+        try {
+            coverage.write(file);
+            CoverageMask read = CoverageMask.read(file);
+
+            assertEquals(coverage.rows(), read.rows());
+            assertEquals(coverage.cols(), read.cols());
+            for (int y = 0; y < coverage.rows(); y++) {
+                assertEquals(coverage.runCount(y), read.runCount(y));
+                for (int i = 0; i < coverage.runCount(y); i++) {
+                    assertEquals(coverage.runStart(y, i), read.runStart(y, i));
+                    assertEquals(coverage.runEnd(y, i), read.runEnd(y, i));
+                }
+            }
+
+            Files.writeString(file, "not a coverage mask");
+            Exception e = assertThrows(IllegalArgumentException.class, () -> CoverageMask.read(file));
+            assertTrue(e.getMessage().contains("doesn't start with GCNR"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
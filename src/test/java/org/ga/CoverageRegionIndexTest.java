@@ -0,0 +1,76 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class CoverageRegionIndexTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 : -random.nextInt(3);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void testSampleGrid() {
+        int[][] grid = {
+                {0, 1, 0},
+                {-1, 0, 2},
+                {0, 0, 0}
+        };
+
+        CoverageRegionIndex index = GridCellNeighbors.indexCoveredRegions(grid, 1);
+
+        assertEquals(6, index.coveredCount());
+        assertEquals(3, index.count(0, 0, 1, 3));
+        assertEquals(1, index.count(1, 1, 2, 2));
+        assertEquals(0, index.count(2, 0, 3, 2));
+        assertEquals(0, index.count(1, 1, 1, 3));
+        // Rectangles past the edges are clipped
+        assertEquals(6, index.count(-5, -5, 50, 50));
+        assertArrayEquals(new long[]{3, 1, 6}, index.countAll(new int[]{0, 0, 1, 3, 1, 1, 2, 2, 0, 0, 3, 3}));
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomRectangles() {
+        Random random = new Random(24);
+        for (int trial = 0; trial < 40; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(40), 1 + random.nextInt(150), random.nextDouble() * 0.05);
+            int n = random.nextInt(6);
+            CoverageMask coverage = GridCellNeighbors.findCellsWithinRange(grid, n);
+            CoverageRegionIndex index = CoverageRegionIndex.of(coverage);
+            assertEquals(coverage.coveredCount(), index.coveredCount(), "trial " + trial);
+
+            for (int query = 0; query < 50; query++) {
+                int fromRow = random.nextInt(grid.length + 1);
+                int toRow = fromRow + random.nextInt(grid.length + 1 - fromRow);
+                int fromCol = random.nextInt(grid[0].length + 1);
+                int toCol = fromCol + random.nextInt(grid[0].length + 1 - fromCol);
+
+                long expected = 0;
+                for (int y = fromRow; y < toRow; y++) {
+                    for (int x = fromCol; x < toCol; x++) {
+                        if (coverage.isCovered(y, x)) expected++;
+                    }
+                }
+                assertEquals(expected, index.count(fromRow, fromCol, toRow, toCol),
+                        "trial " + trial + " rows " + fromRow + "-" + toRow + " cols " + fromCol + "-" + toCol);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidRectangles_throwException() {
+        CoverageRegionIndex index = GridCellNeighbors.indexCoveredRegions(new int[][]{{1, 0}, {0, 0}}, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> index.count(1, 0, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> index.countAll(new int[]{0, 0, 1}));
+    }
+}
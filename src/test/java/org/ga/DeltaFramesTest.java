@@ -0,0 +1,70 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+public class DeltaFramesTest {
+
+    private static String run(int[][] grid, int n, String frames) throws IOException {
+        StringWriter out = new StringWriter();
+        new DeltaFrames(CoverageIndex.of(grid, n)).run(new StringReader(frames), out);
+        return out.toString();
+    }
+
+    @Test
+    public void testCountAfterEachFrame() throws IOException {
+        int[][] grid = {
+                {0, 1, 0},
+                {-1, 0, 2},
+                {0, 0, 0}
+        };
+
+        // Base count is 6. Clearing (1,2) leaves the diamond of (0,1), adding (2,0) adds 3 more cells
+        String counts = run(grid, 1, "1,2,0\n\n2,0,7;0,0,-3\r\n1,1,4 1,1,0");
+
+        assertEquals("4\n4\n7\n7\n", counts);
+    }
+
+    @Test
+    public void testMatchesRecountOnRandomFrames() throws IOException {
+        Random random = new Random(23);
+        int rows = 40;
+        int cols = 60;
+        int n = 3;
+        int[][] grid = new int[rows][cols];
+        CoverageIndex index = CoverageIndex.of(grid, n);
+        DeltaFrames frames = new DeltaFrames(index);
+
+        for (int frame = 0; frame < 50; frame++) {
+            StringBuilder line = new StringBuilder();
+            for (int change = random.nextInt(6); change > 0; change--) {
+                int y = random.nextInt(rows);
+                int x = random.nextInt(cols);
+                grid[y][x] = random.nextInt(5) - 2;
+                line.append(y).append(',').append(x).append(',').append(grid[y][x]).append(' ');
+            }
+
+            StringWriter out = new StringWriter();
+            assertEquals(1, frames.run(new StringReader(line + "\n"), out));
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n) + "\n", out.toString(), "frame " + frame);
+        }
+    }
+
+    @Test
+    public void testInvalidFrames_throwException() {
+        int[][] grid = {{1, 0}, {0, 0}};
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> run(grid, 1, "0,0,1\n0,1\n"));
+        assertTrue(e.getMessage().contains("on line 2"));
+        assertThrows(IllegalArgumentException.class, () -> run(grid, 1, "0,0,1,4\n"));
+        assertThrows(IllegalArgumentException.class, () -> run(grid, 1, "0,x,1\n"));
+        assertThrows(IllegalArgumentException.class, () -> run(grid, 1, "2,0,1\n"));
+        assertThrows(IllegalArgumentException.class, () -> run(grid, 1, "0,0,99999999999\n"));
+    }
+}
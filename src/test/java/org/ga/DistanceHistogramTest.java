@@ -0,0 +1,45 @@
+package org.ga;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceHistogramTest {
+
+    @Test
+    public void testCountsForEveryThresholdMatchLegacy() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 60; trial++) {
+            int height = 1 + random.nextInt(20);
+            int width = 1 + random.nextInt(20);
+            int[][] grid = new int[height][width];
+            int positives = random.nextInt(4);
+            for (int i = 0; i < positives; i++) grid[random.nextInt(height)][random.nextInt(width)] = 1;
+
+            int[] thresholds = IntStream.rangeClosed(0, height + width + 1).toArray();
+            int[] counts = GridCellNeighbors.findTotalCellCountsWithinRanges(grid, thresholds);
+            for (int i = 0; i < thresholds.length; i++) {
+                assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, thresholds[i]), counts[i],
+                        height + "x" + width + " grid with n=" + thresholds[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testThresholdsKeepTheirOrder() {
+        int[][] grid = new int[11][11];
+        grid[7][3] = 1;
+        grid[6][5] = 1;
+        assertArrayEquals(new int[]{22, 2, 121, 22}, GridCellNeighbors.findTotalCellCountsWithinRanges(grid, new int[]{2, 0, 500, 2}));
+    }
+
+    @Test
+    public void testNoPositivesCountsZeroEverywhere() {
+        DistanceHistogram histogram = DistanceHistogram.of(PositiveMask.of(new int[5][5]));
+        assertEquals(0, histogram.countWithin(0));
+        assertEquals(0, histogram.countWithin(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,140 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class DistanceMetricTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 : -random.nextInt(3);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Checks every cell against every positive, the definition each metric's algorithm must match
+     */
+    private static long bruteForce(int[][] grid, int n, DistanceMetric metric) {
+        long covered = 0;
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < grid[y].length; x++) {
+                covered += reachesAnyPositive(grid, y, x, n, metric) ? 1 : 0;
+            }
+        }
+        return covered;
+    }
+
+    private static boolean reachesAnyPositive(int[][] grid, int y, int x, int n, DistanceMetric metric) {
+        for (int py = 0; py < grid.length; py++) {
+            for (int px = 0; px < grid[py].length; px++) {
+                if (grid[py][px] > 0 && metric.reaches(py - y, px - x, n)) return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testSinglePositiveShapes() {
+        int[][] grid = new int[11][11];
+        grid[5][5] = 1;
+        PositiveMask mask = PositiveMask.of(grid);
+
+        assertEquals(13, GridCellNeighbors.findTotalCellCountWithinRange(mask, 2, DistanceMetric.MANHATTAN));
+        assertEquals(25, GridCellNeighbors.findTotalCellCountWithinRange(mask, 2, DistanceMetric.CHEBYSHEV));
+        assertEquals(13, GridCellNeighbors.findTotalCellCountWithinRange(mask, 2, DistanceMetric.EUCLIDEAN));
+        // Radius 3 picks up (2, 2) in each quadrant, which is 2.83 away
+        assertEquals(29, GridCellNeighbors.findTotalCellCountWithinRange(mask, 3, DistanceMetric.EUCLIDEAN));
+    }
+
+    @Test
+    public void testMetricsMatchBruteForce() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 150; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(30), 1 + random.nextInt(150), random.nextDouble() * 0.08);
+            int n = random.nextInt(12);
+            PositiveMask mask = PositiveMask.of(grid);
+
+            for (DistanceMetric metric : DistanceMetric.values()) {
+                assertEquals(bruteForce(grid, n, metric), GridCellNeighbors.findTotalCellCountWithinRange(mask, n, metric),
+                        metric + " trial " + trial + " n " + n);
+            }
+        }
+    }
+
+    @Test
+    public void testWideGridsSpanSeveralStrips() {
+        Random random = new Random(29);
+        for (int trial = 0; trial < 4; trial++) {
+            int[][] grid = randomGrid(random, 6 + random.nextInt(10), 700 + random.nextInt(700), 0.004);
+            int n = 1 + random.nextInt(40);
+
+            assertEquals(bruteForce(grid, n, DistanceMetric.CHEBYSHEV),
+                    GridCellNeighbors.findTotalCellCountWithinRange(PositiveMask.of(grid), n, DistanceMetric.CHEBYSHEV), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testManhattanMatchesEngines() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 30; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(80), 0.05);
+            int n = random.nextInt(10);
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n),
+                    GridCellNeighbors.findTotalCellCountWithinRange(PositiveMask.of(grid), n, DistanceMetric.MANHATTAN));
+        }
+    }
+
+    @Test
+    public void testSparseGridMatchesMask() {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 30; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(40), 1 + random.nextInt(200), 0.02);
+            int n = random.nextInt(20);
+
+            for (DistanceMetric metric : DistanceMetric.values()) {
+                assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(PositiveMask.of(grid), n, metric),
+                        GridCellNeighbors.findTotalCellCountWithinRange(SparseGrid.of(grid), n, metric), metric + " trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    public void testHugeDistanceCoversEverything() {
+        int[][] grid = randomGrid(new Random(3), 40, 70, 0);
+        grid[39][0] = 1;
+        PositiveMask mask = PositiveMask.of(grid);
+
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            assertEquals(40 * 70, GridCellNeighbors.findTotalCellCountWithinRange(mask, Integer.MAX_VALUE, metric), metric.name());
+        }
+    }
+
+    @Test
+    public void testNoPositives() {
+        PositiveMask mask = PositiveMask.of(new int[5][130]);
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            assertEquals(0, GridCellNeighbors.findTotalCellCountWithinRange(mask, 3, metric));
+        }
+    }
+
+    @Test
+    public void testNegativeDistance() {
+        PositiveMask mask = PositiveMask.of(new int[][]{{1}});
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findTotalCellCountWithinRange(mask, -1, DistanceMetric.CHEBYSHEV));
+    }
+
+    @Test
+    public void testFromName() {
+        assertEquals(DistanceMetric.EUCLIDEAN, DistanceMetric.fromName(" Euclidean "));
+        Exception e = assertThrows(IllegalArgumentException.class, () -> DistanceMetric.fromName("hamming"));
+        assertEquals("Unknown metric hamming. Expected one of manhattan, chebyshev, euclidean", e.getMessage());
+    }
+}
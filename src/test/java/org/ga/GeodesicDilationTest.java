@@ -0,0 +1,125 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+public class GeodesicDilationTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance, double wallChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double roll = random.nextDouble();
+                grid[y][x] = roll < positiveChance ? 1 + random.nextInt(5) : roll < positiveChance + wallChance ? -1 - random.nextInt(5) : 0;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Plain breadth first search over cells from every positive, stepping only onto non-negative cells
+     */
+    private static long bruteForce(int[][] grid, int n) {
+        int height = grid.length;
+        int width = grid[0].length;
+        int[][] steps = new int[height][width];
+        for (int[] row : steps) Arrays.fill(row, -1);
+
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (grid[y][x] > 0) {
+                    steps[y][x] = 0;
+                    queue.add(new int[]{y, x});
+                }
+            }
+        }
+
+        long covered = queue.size();
+        int[][] moves = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        while (!queue.isEmpty()) {
+            int[] cell = queue.poll();
+            if (steps[cell[0]][cell[1]] == n) continue;
+            for (int[] move : moves) {
+                int y = cell[0] + move[0];
+                int x = cell[1] + move[1];
+                if (y < 0 || y >= height || x < 0 || x >= width || grid[y][x] < 0 || steps[y][x] >= 0) continue;
+                steps[y][x] = steps[cell[0]][cell[1]] + 1;
+                covered++;
+                queue.add(new int[]{y, x});
+            }
+        }
+        return covered;
+    }
+
+    @Test
+    public void testWallBlocksCoverage() {
+        int[][] grid = {
+                {1, 0, -1, 0, 0},
+                {0, 0, -1, 0, 0},
+                {0, 0, 0, 0, 0}
+        };
+
+        // Without walls grid[0][3] is 3 steps away, around the wall it takes 7
+        assertEquals(9, GridCellNeighbors.findTotalCellCountWithinRange(grid, 3));
+        assertEquals(6, GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, 3));
+        assertEquals(7, GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, 4));
+        assertEquals(13, GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, 100));
+    }
+
+    @Test
+    public void testCustomWallValues() {
+        int[][] grid = {
+                {1, -9, 0},
+                {0, -9, 0},
+                {0, 0, -5}
+        };
+
+        // -5 isn't a wall here, so coverage walks through it
+        assertEquals(7, GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, 10, value -> value == -9));
+        assertEquals(3, GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, 2, value -> value == -9));
+    }
+
+    @Test
+    public void testWithoutWallsMatchesManhattan() {
+        Random random = new Random(13);
+        for (int trial = 0; trial < 20; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(150), 0.03, 0);
+            int n = random.nextInt(15);
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, n));
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(41);
+        for (int trial = 0; trial < 120; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(30), 1 + random.nextInt(200), random.nextDouble() * 0.05, random.nextDouble() * 0.5);
+            int n = random.nextInt(40);
+
+            assertEquals(bruteForce(grid, n), GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(grid, n), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testManyThresholdsInOneSearch() {
+        int[][] grid = randomGrid(new Random(2), 25, 130, 0.01, 0.35);
+        int[] thresholds = {30, 0, 7, 7, 1000, 2};
+
+        long[] counts = GeodesicDilation.count(PositiveMask.of(grid), PositiveMask.where(grid, value -> value < 0), thresholds);
+        for (int i = 0; i < thresholds.length; i++) {
+            assertEquals(bruteForce(grid, thresholds[i]), counts[i], "threshold " + thresholds[i]);
+        }
+    }
+
+    @Test
+    public void testNegativeDistance() {
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findTotalCellCountWithinRangeAroundWalls(new int[][]{{1}}, -1));
+    }
+}
@@ -1,6 +1,7 @@
 package org.ga;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedStatic;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -9,10 +10,14 @@ import static org.mockito.Mockito.*;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 public class GridCellNeighborsMainTest {
 
     static Path tempCsv;
+
+    @TempDir
+    Path tempDir;
     private static final PrintStream standardOut = System.out;
     private static final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
 
@@ -39,6 +44,15 @@ public class GridCellNeighborsMainTest {
         Files.deleteIfExists(tempCsv);
     }
 
+    /**
+     * Writes a grid to a csv file of its own, so a test doesn't depend on what others left in tempCsv
+     */
+    private Path writeCsv(String contents) throws IOException {
+        Path csv = Files.createTempFile(tempDir, "grid", ".csv");
+        Files.writeString(csv, contents);
+        return csv;
+    }
+
     @Test
     void testMain_validInput_printsExpectedOutput()  {
         int mockDistance = 2;
@@ -176,4 +190,344 @@ public class GridCellNeighborsMainTest {
 
         assertTrue(e.getMessage().contains("Expected a grid in csv but found none"));
     }
+
+    @Test
+    void testMain_engineOption_printsExpectedOutput() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--engine=frontier-bfs"});
+
+        assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+    }
+
+    @Test
+    void testMain_unknownEngine_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--engine=quantum"})
+        );
+        assertTrue(e.getMessage().contains("Unknown engine quantum"));
+    }
+
+    @Test
+    void testMain_parallelOption_printsExpectedOutput() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--parallel=2"});
+
+        assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+    }
+
+    @Test
+    void testMain_invalidParallelism_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--parallel=many"})
+        );
+        assertTrue(e.getMessage().contains("Expected --parallel to be an integer"));
+    }
+
+    @Test
+    void testMain_streamingOption_skipsGridEcho() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--streaming"});
+
+        assertFalse(outputStreamCaptor.toString().contains("Grid Successfully Parsed"));
+        assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+    }
+
+    @Test
+    void testMain_convertThenCountBinaryGrid_printsExpectedOutput() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Path binary = Files.createTempFile("test-grid", BinaryGridFormat.EXTENSION);
+        try {
+            GridCellNeighbors.main(new String[]{"--convert", csv.toString(), binary.toString()});
+            GridCellNeighbors.main(new String[]{"1", binary.toString()});
+
+            assertTrue(outputStreamCaptor.toString().contains("Grid Successfully Parsed"));
+            assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+
+            outputStreamCaptor.reset();
+            GridCellNeighbors.main(new String[]{"--convert", "--mask", csv.toString(), binary.toString()});
+            GridCellNeighbors.main(new String[]{"1", binary.toString()});
+
+            assertTrue(outputStreamCaptor.toString().contains("Positive mask of 3x3 grid loaded"));
+            assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    void testMain_distanceListAndRange_printsCountPerDistance() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"0-1,4", csv.toString()});
+
+        String output = outputStreamCaptor.toString();
+        assertTrue(output.contains("3 Neighbors within a manhattan distance of 0"));
+        assertTrue(output.contains("7 Neighbors within a manhattan distance of 1"));
+        assertTrue(output.contains("9 Neighbors within a manhattan distance of 4"));
+    }
+
+    @Test
+    void testMain_distanceRangeWithEngine_countsEachDistanceWithEngine() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        try (MockedStatic<GridCellNeighbors> mocked = mockStatic(GridCellNeighbors.class)) {
+            mocked.when(() -> GridCellNeighbors.findTotalCellCountWithinRange(any(int[][].class), anyInt(), eq(CountingEngine.BITSET_DILATION)))
+                    .thenReturn(42);
+            mocked.when(() -> GridCellNeighbors.main(any())).thenCallRealMethod();
+
+            GridCellNeighbors.main(new String[]{"0-1", csv.toString(), "--engine=bitset_dilation"});
+
+            assertTrue(outputStreamCaptor.toString().contains("42 Neighbors within a manhattan distance of 0"));
+            assertTrue(outputStreamCaptor.toString().contains("42 Neighbors within a manhattan distance of 1"));
+        }
+    }
+
+    @Test
+    void testMain_negativeDistanceInList_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1,-1", csv.toString()})
+        );
+        assertTrue(e.getMessage().contains("cannot be negative"));
+    }
+
+    @Test
+    void testMain_decreasingDistanceRange_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"5-2", csv.toString()})
+        );
+        assertTrue(e.getMessage().contains("Expected distance range 5-2 to go from low to high"));
+    }
+
+    @Test
+    void testMain_sparseOption_countsPositivesOnly() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1,4", csv.toString(), "--sparse"});
+
+        String output = outputStreamCaptor.toString();
+        assertFalse(output.contains("Grid Successfully Parsed"));
+        assertTrue(output.contains("Sparse grid of 3x3 with 3 positive cells loaded"));
+        assertTrue(output.contains("7 Neighbors within a manhattan distance of 1"));
+        assertTrue(output.contains("9 Neighbors within a manhattan distance of 4"));
+    }
+
+    @Test
+    void testMain_jsonFormat_printsSingleLineWithoutEcho() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--format=json"});
+
+        String output = outputStreamCaptor.toString().trim();
+        assertFalse(output.contains("Grid Successfully Parsed"));
+        assertEquals(1, output.lines().count());
+        assertTrue(output.matches("\\{\"distance\":1,\"metric\":\"manhattan\",\"count\":7,\"rows\":3,\"cols\":3,\"cells\":9,\"positives\":3," +
+                "\"parse_ms\":[0-9.]+,\"compute_ms\":[0-9.]+}"), output);
+    }
+
+    @Test
+    void testMain_tsvFormat_printsLinePerDistance() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"0,1", csv.toString(), "--format=tsv"});
+
+        String[] lines = outputStreamCaptor.toString().trim().split("\\R");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("0\tmanhattan\t3\t3\t3\t9\t3\t"), lines[0]);
+        assertTrue(lines[1].startsWith("1\tmanhattan\t7\t3\t3\t9\t3\t"), lines[1]);
+    }
+
+    @Test
+    void testMain_unknownFormat_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--format=xml"})
+        );
+        assertTrue(e.getMessage().contains("Unknown format xml"));
+    }
+
+    @Test
+    void testMain_unknownOption_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--paralel"})
+        );
+        assertTrue(e.getMessage().startsWith("Unknown option --paralel"), e.getMessage());
+    }
+
+    @Test
+    void testMain_chebyshevMetric_printsSquareCount() throws IOException {
+        Path csv = writeCsv("0,0,0,0,0\n0,0,0,0,0\n0,0,1,0,0\n0,0,0,0,0\n0,0,0,0,0");
+
+        GridCellNeighbors.main(new String[]{"1,2", csv.toString(), "--metric=chebyshev"});
+
+        String output = outputStreamCaptor.toString();
+        assertTrue(output.contains("9 Neighbors within a chebyshev distance of 1"), output);
+        assertTrue(output.contains("25 Neighbors within a chebyshev distance of 2"), output);
+    }
+
+    @Test
+    void testMain_chebyshevMetric_jsonNamesMetric() throws IOException {
+        Path csv = writeCsv("0,0,0,0,0\n0,0,0,0,0\n0,0,1,0,0\n0,0,0,0,0\n0,0,0,0,0");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--metric=chebyshev", "--format=json"});
+
+        String output = outputStreamCaptor.toString().trim();
+        assertTrue(output.startsWith("{\"distance\":1,\"metric\":\"chebyshev\",\"count\":9,"), output);
+    }
+
+    @Test
+    void testMain_metricWithEngine_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--metric=euclidean", "--engine=frontier_bfs"})
+        );
+        assertTrue(e.getMessage().contains("can't be used with --engine"));
+    }
+
+    @Test
+    void testMain_walls_countsAroundNegatives() throws IOException {
+        Path csv = writeCsv("1,0,-1,0,0\n0,0,-1,0,0\n0,0,0,0,0");
+
+        GridCellNeighbors.main(new String[]{"3,4", csv.toString(), "--walls"});
+
+        String output = outputStreamCaptor.toString();
+        assertTrue(output.contains("6 Neighbors within a manhattan distance of 3"), output);
+        assertTrue(output.contains("7 Neighbors within a manhattan distance of 4"), output);
+    }
+
+    @Test
+    void testMain_wallsWithSparse_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--walls", "--sparse"})
+        );
+        assertTrue(e.getMessage().contains("--walls has its own search"));
+    }
+
+    @Test
+    void testMain_batchDirectory_writesResultsFile() throws IOException {
+        Path dir = Files.createTempDirectory("batch");
+        Path out = Files.createTempFile("batch", ".tsv");
+        try {
+            Files.writeString(dir.resolve("grid.csv"), "0,1,0\n-1,0,2\n0,0,0");
+
+            GridCellNeighbors.main(new String[]{"--batch", dir.toString(), out.toString(), "--distance=1-2"});
+
+            assertTrue(outputStreamCaptor.toString().startsWith("Counted 1 grids, 0 failed, into " + out));
+            assertEquals(List.of(dir.resolve("grid.csv") + "\t1\t6", dir.resolve("grid.csv") + "\t2\t8"), Files.readAllLines(out));
+        } finally {
+            Files.deleteIfExists(dir.resolve("grid.csv"));
+            Files.deleteIfExists(dir);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    void testMain_batchDirectoryWithoutDistance_throwsException() throws IOException {
+        Path dir = Files.createTempDirectory("batch");
+        try {
+            Exception e = assertThrows(IllegalArgumentException.class, () ->
+                    GridCellNeighbors.main(new String[]{"--batch", dir.toString(), "out.tsv"})
+            );
+            assertTrue(e.getMessage().contains("Expected --distance"));
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    void testMain_frames_printsCountAfterEachFrame() throws IOException {
+        Path frames = Files.createTempFile("frames", ".txt");
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+        try {
+            Files.writeString(frames, "1,1,0\n2,0,1\n");
+
+            GridCellNeighbors.main(new String[]{"1", csv.toString(), "--frames=" + frames});
+
+            assertEquals("7\n6\n7\n", outputStreamCaptor.toString().replace("\r", ""));
+        } finally {
+            Files.deleteIfExists(frames);
+        }
+    }
+
+    @Test
+    void testMain_framesWithBadLine_printsCountsBeforeIt() throws IOException {
+        Path frames = Files.createTempFile("frames", ".txt");
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+        try {
+            Files.writeString(frames, "1,1,0\n2,0,1\nbad\n");
+
+            Exception e = assertThrows(IllegalArgumentException.class, () ->
+                    GridCellNeighbors.main(new String[]{"1", csv.toString(), "--frames=" + frames})
+            );
+
+            assertTrue(e.getMessage().contains("on line 3"));
+            assertEquals("7\n6\n7\n", outputStreamCaptor.toString().replace("\r", ""));
+        } finally {
+            Files.deleteIfExists(frames);
+        }
+    }
+
+    @Test
+    void testMain_framesWithRange_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1-2", csv.toString(), "--frames=-"})
+        );
+        assertTrue(e.getMessage().contains("Expected max Manhattan distance as an integer"));
+    }
+
+    @Test
+    void testMain_offHeap_printsCount() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"1", csv.toString(), "--offheap"});
+
+        assertTrue(outputStreamCaptor.toString().contains("Off heap grid of 3x3 loaded"));
+        assertTrue(outputStreamCaptor.toString().contains("7 Neighbors within a manhattan distance of 1"));
+    }
+
+    @Test
+    void testMain_offHeapDistanceRange_printsCountPerDistance() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        GridCellNeighbors.main(new String[]{"0-2", csv.toString(), "--offheap"});
+        GridCellNeighbors.main(new String[]{"0-2", csv.toString(), "--offheap", "--engine=diamond_union"});
+
+        String[] lines = outputStreamCaptor.toString().lines().filter(line -> line.contains("Neighbors")).toArray(String[]::new);
+        assertArrayEquals(new String[]{
+                "3 Neighbors within a manhattan distance of 0",
+                "7 Neighbors within a manhattan distance of 1",
+                "9 Neighbors within a manhattan distance of 2",
+                "3 Neighbors within a manhattan distance of 0",
+                "7 Neighbors within a manhattan distance of 1",
+                "9 Neighbors within a manhattan distance of 2"}, lines);
+    }
+
+    @Test
+    void testMain_offHeapWithSparse_throwsException() throws IOException {
+        Path csv = writeCsv("1,0,0\n0,1,0\n0,0,1");
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.main(new String[]{"1", csv.toString(), "--offheap", "--sparse"})
+        );
+        assertTrue(e.getMessage().contains("--offheap can't be used"));
+    }
 }
@@ -0,0 +1,151 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GridQueryServerTest {
+
+    static Path tempCsv;
+    static GridQueryServer server;
+    static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() throws IOException {
+        tempCsv = Files.createTempFile("query-grid", ".csv");
+        server = GridQueryServer.start(0, 1 << 20, 4);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        server.close();
+        Files.deleteIfExists(tempCsv);
+    }
+
+    private static HttpResponse<String> query(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/count?" + query)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String gridParameter(Path path) {
+        return "grid=" + URLEncoder.encode(path.toString(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCountsMatchCli() throws Exception {
+        Files.writeString(tempCsv, "1,0,0\n0,1,0\n0,0,1");
+
+        HttpResponse<String> response = query(gridParameter(tempCsv) + "&n=1");
+        assertEquals(200, response.statusCode());
+        assertEquals("7", response.body().trim());
+
+        response = query(gridParameter(tempCsv) + "&n=0&engine=diamond-union");
+        assertEquals("3", response.body().trim());
+    }
+
+    @Test
+    public void testConcurrentQueriesLoadGridOnce() throws Exception {
+        Path csv = Files.createTempFile("query-grid", ".csv");
+        try {
+            Files.writeString(csv, "0,0,0,0\n0,1,0,0\n0,0,0,0");
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int n = 0; n < 20; n++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/count?" + gridParameter(csv) + "&n=" + (n % 4))).build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+
+            String[] expected = {"1", "5", "10", "12"};
+            for (int n = 0; n < 20; n++) {
+                assertEquals(expected[n % 4], responses.get(n).get().body().trim());
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testEditedGridIsReloaded() throws Exception {
+        Files.writeString(tempCsv, "1,0,0\n0,0,0\n0,0,0");
+        Files.setLastModifiedTime(tempCsv, FileTime.fromMillis(1_000_000));
+        assertEquals("3", query(gridParameter(tempCsv) + "&n=1").body().trim());
+
+        Files.writeString(tempCsv, "0,0,0\n0,1,0\n0,0,0");
+        Files.setLastModifiedTime(tempCsv, FileTime.fromMillis(2_000_000));
+        assertEquals("5", query(gridParameter(tempCsv) + "&n=1").body().trim());
+    }
+
+    @Test
+    public void testBadQueries() throws Exception {
+        Files.writeString(tempCsv, "1,0,0\n0,1,0\n0,0,1");
+
+        HttpResponse<String> response = query(gridParameter(tempCsv) + "&n=abc");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Expected n to be an integer but found abc"));
+
+        response = query(gridParameter(tempCsv) + "&n=-1");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("cannot be negative"));
+
+        response = query("n=1");
+        assertEquals(400, response.statusCode());
+
+        response = query(gridParameter(tempCsv) + "&n=1&engine=quantum");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Unknown engine quantum"));
+
+        response = query("grid=/does/not/exist.csv&n=1");
+        assertEquals(404, response.statusCode());
+        assertTrue(response.body().contains("No such file or directory"));
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        PositiveMask mask = PositiveMask.of(new int[][]{{1, 0}, {0, 0}}); // One 8 byte word per row
+        GridCache cache = new GridCache(32, path -> {
+            loads.incrementAndGet();
+            return mask;
+        });
+
+        Path first = Files.createTempFile("cache-grid", ".csv");
+        Path second = Files.createTempFile("cache-grid", ".csv");
+        Path third = Files.createTempFile("cache-grid", ".csv");
+        try {
+            cache.grid(first);
+            cache.grid(second);
+            cache.grid(first);  // Second is now the least recently used
+            cache.grid(third);  // 48 bytes, over the limit
+            assertEquals(3, loads.get());
+            assertEquals(2, cache.gridCount());
+            assertEquals(32, cache.bytes());
+
+            cache.grid(first);
+            assertEquals(3, loads.get(), "first should still be cached");
+            cache.grid(second);
+            assertEquals(4, loads.get(), "second should have been evicted");
+
+            assertEquals(3, cache.count(first, 1, CountingEngine.FRONTIER_BFS));
+            assertEquals(3, cache.count(first, 1, CountingEngine.FRONTIER_BFS));
+            assertEquals(4, loads.get());
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+            Files.deleteIfExists(third);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MappedCsvParserTest {
+
+    static Path tempCsv;
+
+    @BeforeEach
+    void createCsv() throws IOException {
+        tempCsv = Files.createTempFile("mapped-grid", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempCsv);
+    }
+
+    /**
+     * The line based regex, split and stream parser the mapped parser replaces
+     */
+    private static int[][] parseWithRegex(String csv) {
+        return csv.lines()
+                .map(line -> Arrays.stream(line.replaceAll("\\s", "").split(","))
+                        .filter(s -> !s.isBlank())
+                        .mapToInt(Integer::parseInt)
+                        .toArray())
+                .filter(row -> row.length > 0)
+                .toArray(int[][]::new);
+    }
+
+    private static int[][] parseMapped(String csv) throws IOException {
+        Files.writeString(tempCsv, csv);
+        return MappedCsvParser.parse(tempCsv, 1);
+    }
+
+    @Test
+    public void testMatchesRegexParserOnEdgeCases() throws IOException {
+        String[] inputs = {
+                "0, 1, 0\n-1, 0, 2\n0, 0, 0",
+                "1 ,0,0 \n0,1  ,0\n0     ,0,1\n",
+                "\n\n1,,2,\n,,\n3, 4\r\n5,6\r7,8",
+                "1 2,3\t4\n+5,-6",
+                "2147483647,-2147483648",
+                "-0,+0,007",
+        };
+
+        for (String csv : inputs) {
+            assertArrayEquals(parseWithRegex(csv), parseMapped(csv), csv);
+        }
+    }
+
+    @Test
+    public void testInvalidValuesFailLikeIntegerParseInt() throws IOException {
+        String[] inputs = {"1,a,3\n0,0,1", "1,2147483648", "1,-,3", "1,2-3", "1,--3", "4,1 a"};
+
+        for (String csv : inputs) {
+            NumberFormatException expected = assertThrows(NumberFormatException.class, () -> parseWithRegex(csv));
+            NumberFormatException actual = assertThrows(NumberFormatException.class, () -> parseMapped(csv));
+            assertEquals(expected.getMessage(), actual.getMessage(), csv);
+        }
+    }
+
+    @Test
+    public void testRowParserMatchesRegexParser() {
+        String[] lines = {"0, 1, 0", " 1 2 ,,3\t4, ", "+5,-6,-0", "", ", ,"};
+        for (String line : lines) {
+            int[][] expected = parseWithRegex(line);
+            assertArrayEquals(expected.length == 0 ? new int[0] : expected[0], CsvRowParser.parseRow(line), line);
+        }
+
+        NumberFormatException expected = assertThrows(NumberFormatException.class, () -> parseWithRegex("1, 9 9a ,2"));
+        NumberFormatException actual = assertThrows(NumberFormatException.class, () -> CsvRowParser.parseRow("1, 9 9a ,2"));
+        assertEquals(expected.getMessage(), actual.getMessage());
+    }
+
+    @Test
+    public void testEmptyFileHasNoRows() throws IOException {
+        assertEquals(0, parseMapped("").length);
+        assertEquals(0, parseMapped("\n \n").length);
+    }
+
+    @Test
+    public void testChunkedParallelParseMatchesSequential() throws IOException {
+        Random random = new Random(3);
+        StringBuilder csv = new StringBuilder();
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 40; x++) {
+                if (x > 0) csv.append(random.nextBoolean() ? ", " : ",");
+                csv.append(random.nextInt(2001) - 1000);
+            }
+            csv.append(y % 7 == 0 ? "\r\n" : "\n");
+        }
+        Files.writeString(tempCsv, csv);
+
+        int[][] expected = parseWithRegex(csv.toString());
+        for (long chunkBytes : new long[]{1, 97, 4096, 1 << 20}) {
+            assertArrayEquals(expected, MappedCsvParser.parseInChunks(tempCsv, chunkBytes), "chunks of " + chunkBytes);
+        }
+    }
+
+    @Test
+    public void testChunkedParseReportsFirstInvalidValue() throws IOException {
+        Files.writeString(tempCsv, "1,2\n3,x\n4,5\n6,y\n");
+
+        NumberFormatException e = assertThrows(NumberFormatException.class, () -> MappedCsvParser.parseInChunks(tempCsv, 4));
+        assertTrue(e.getMessage().contains("\"x\""));
+    }
+}
@@ -0,0 +1,136 @@
+package org.ga;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Surefire runs this class alone in a JVM started with -Dorg.ga.metrics=true, run from elsewhere these are skipped
+ */
+public class MetricsTest {
+
+    private static final int[][] SAMPLE = {
+            {0, 1, 0},
+            {-1, 0, 2},
+            {0, 0, 0}
+    };
+
+    @BeforeEach
+    public void setUp() {
+        assumeTrue(Metrics.ENABLED, "Metrics are only recorded with -Dorg.ga.metrics=true");
+        Metrics.reset();
+    }
+
+    @Test
+    public void testLegacyBfsCountsDuplicates() {
+        assertEquals(6, GridCellNeighbors.findTotalCellCountWithinRange(SAMPLE, 1));
+
+        assertEquals(2, Metrics.get(Metrics.Counter.POSITIVES_FOUND));
+        assertEquals(6, Metrics.get(Metrics.Counter.CELLS_COVERED));
+        // grid[1][1] and grid[0][2] are reached from both positives
+        assertTrue(Metrics.get(Metrics.Counter.DUPLICATE_ENQUEUES_SKIPPED) >= 2);
+        assertTrue(Metrics.get(Metrics.Counter.CELLS_ENQUEUED) >= 6 + Metrics.get(Metrics.Counter.DUPLICATE_ENQUEUES_SKIPPED));
+    }
+
+    @Test
+    public void testFrontierBfsEnqueuesEachCellOnce() {
+        PositiveMask mask = PositiveMask.of(SAMPLE);
+        assertEquals(6, GridCellNeighbors.findTotalCellCountWithinRange(mask, 1, CountingEngine.FRONTIER_BFS));
+
+        assertEquals(2, Metrics.get(Metrics.Counter.POSITIVES_FOUND));
+        assertEquals(6, Metrics.get(Metrics.Counter.CELLS_ENQUEUED));
+        assertEquals(6, Metrics.get(Metrics.Counter.CELLS_COVERED));
+        assertTrue(Metrics.get(Metrics.Counter.DUPLICATE_ENQUEUES_SKIPPED) > 0);
+    }
+
+    @Test
+    public void testParserCountsRowsAndTokens() throws IOException {
+        Path csv = Files.createTempFile("metrics", ".csv");
+        try {
+            Files.writeString(csv, "0, 1, 0\n\n-1, 0, 2\n0, 0, 0\n");
+            MappedCsvParser.parse(csv);
+
+            assertEquals(3, Metrics.get(Metrics.Counter.ROWS_PARSED));
+            assertEquals(9, Metrics.get(Metrics.Counter.TOKENS_PARSED));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testMainCountsPositivesOnce() throws IOException {
+        Path csv = Files.createTempFile("metrics", ".csv");
+        try {
+            Files.writeString(csv, "0,1,0\n-1,0,2\n0,0,0");
+            GridCellNeighbors.main(new String[]{"1", csv.toString(), "--format=json"});
+
+            assertEquals(2, Metrics.get(Metrics.Counter.POSITIVES_FOUND));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testMainRecordsPhases() throws IOException {
+        Path csv = Files.createTempFile("metrics", ".csv");
+        try {
+            Files.writeString(csv, "0,1,0\n-1,0,2\n0,0,0");
+            GridCellNeighbors.main(new String[]{"1,2", csv.toString(), "--format=tsv", "--engine=diamond_union"});
+
+            assertEquals(1, Metrics.calls(Metrics.Phase.PARSE));
+            assertEquals(1, Metrics.calls(Metrics.Phase.VALIDATE));
+            assertTrue(Metrics.calls(Metrics.Phase.COMPUTE) >= 1);
+            assertTrue(Metrics.nanos(Metrics.Phase.PARSE) > 0);
+            assertTrue(Metrics.summary().startsWith("{\"rows_parsed\":3,\"tokens_parsed\":9,"), Metrics.summary());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testMXBeanIsRegistered() throws Exception {
+        GridCellNeighbors.findTotalCellCountWithinRange(PositiveMask.of(SAMPLE), 1, CountingEngine.DIAMOND_UNION);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(6L, server.getAttribute(name, "CellsCovered"));
+        assertEquals(2L, server.getAttribute(name, "PositivesFound"));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, Metrics.get(Metrics.Counter.CELLS_COVERED));
+    }
+
+    @Test
+    public void testCountEventIsRecorded() throws IOException {
+        Path dump = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.ga.Count");
+            recording.start();
+            CountEvent.commit(new OutputFormat.Report(4, 17, 3, 5, 2, 1_000, 2_000, DistanceMetric.MANHATTAN));
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals(4, event.getInt("distance"));
+            assertEquals(17, event.getLong("count"));
+            assertEquals(15, event.getLong("cells"));
+            assertEquals(2_000, event.getDuration("computeTime").toNanos());
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+}
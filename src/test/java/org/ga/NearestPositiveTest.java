@@ -0,0 +1,122 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class NearestPositiveTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 : -random.nextInt(3);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Checks planes against every positive, labelled in row-major order, ties going to the smallest label
+     */
+    private static void assertMatchesBruteForce(int[][] grid, int n, NearestPositive nearest, String context) {
+        int label = 0;
+        int[] positiveRows = new int[grid.length * grid[0].length];
+        int[] positiveCols = new int[positiveRows.length];
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < grid[y].length; x++) {
+                if (grid[y][x] > 0) {
+                    positiveRows[label] = y;
+                    positiveCols[label++] = x;
+                }
+            }
+        }
+        assertEquals(label, nearest.positiveCount(), context);
+
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < grid[y].length; x++) {
+                int best = NearestPositive.UNCOVERED;
+                long bestDistance = Long.MAX_VALUE;
+                for (int p = 0; p < label; p++) {
+                    long distance = Math.abs(positiveRows[p] - y) + Math.abs(positiveCols[p] - x);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = p;
+                    }
+                }
+                if (bestDistance > n) {
+                    assertEquals(NearestPositive.UNCOVERED, nearest.distance(y, x), context + " at " + y + "," + x);
+                    assertEquals(NearestPositive.UNCOVERED, nearest.label(y, x), context + " at " + y + "," + x);
+                } else {
+                    assertEquals(bestDistance, nearest.distance(y, x), context + " at " + y + "," + x);
+                    assertEquals(best, nearest.label(y, x), context + " at " + y + "," + x);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSampleGrid() {
+        int[][] grid = {
+                {0, 1, 0},
+                {-1, 0, 2},
+                {0, 0, 0}
+        };
+
+        NearestPositive nearest = GridCellNeighbors.findNearestPositives(grid, 1);
+
+        assertEquals(6, nearest.coveredCount());
+        assertEquals(2, nearest.positiveCount());
+        assertEquals(1, nearest.positiveRow(1));
+        assertEquals(2, nearest.positiveCol(1));
+        // grid[1][1] and grid[0][2] are 1 from both positives, so they go to the first
+        assertEquals(0, nearest.label(1, 1));
+        assertEquals(0, nearest.label(0, 2));
+        assertEquals(1, nearest.label(2, 2));
+        assertEquals(NearestPositive.UNCOVERED, nearest.label(2, 0));
+        assertArrayEquals(new long[]{4, 2}, nearest.areas());
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomGrids() {
+        Random random = new Random(99);
+        for (int trial = 0; trial < 150; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(25), 1 + random.nextInt(90), random.nextDouble() * 0.1);
+            int n = random.nextInt(30);
+
+            NearestPositive nearest = GridCellNeighbors.findNearestPositives(grid, n);
+            assertMatchesBruteForce(grid, n, nearest, "trial " + trial);
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), nearest.coveredCount(), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testLargeDistanceUsesIntPlane() {
+        int[][] grid = randomGrid(new Random(4), 20, 30, 0.02);
+        grid[0][0] = 1;
+
+        NearestPositive compact = GridCellNeighbors.findNearestPositives(grid, 1000);
+        NearestPositive wide = GridCellNeighbors.findNearestPositives(SparseGrid.of(grid), Integer.MAX_VALUE);
+
+        assertNotNull(compact.shortDistances());
+        assertNull(compact.intDistances());
+        assertNull(wide.shortDistances());
+        assertEquals(600, wide.coveredCount());
+        assertMatchesBruteForce(grid, Integer.MAX_VALUE, wide, "int plane");
+        assertArrayEquals(compact.labels(), wide.labels());
+    }
+
+    @Test
+    public void testNoPositives() {
+        NearestPositive nearest = GridCellNeighbors.findNearestPositives(new int[4][4], 3);
+        assertEquals(0, nearest.coveredCount());
+        assertEquals(NearestPositive.UNCOVERED, nearest.distance(3, 3));
+    }
+
+    @Test
+    public void testNegativeDistance_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findNearestPositives(new int[][]{{1}}, -1));
+    }
+}
@@ -0,0 +1,121 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class OffHeapGridTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 + random.nextInt(9) : -random.nextInt(9);
+            }
+        }
+        return grid;
+    }
+
+    private static void assertSameGrid(int[][] expected, OffHeapGrid actual) {
+        assertEquals(expected.length, actual.rows());
+        assertEquals(expected[0].length, actual.cols());
+        int[] row = new int[actual.cols()];
+        for (int y = 0; y < expected.length; y++) {
+            actual.getRow(y, row);
+            assertArrayEquals(expected[y], row, "row " + y);
+            for (int x = 0; x < expected[y].length; x++) assertEquals(expected[y][x], actual.get(y, x));
+        }
+    }
+
+    @Test
+    public void testEnginesMatchOnHeapGrid() {
+        Random random = new Random(25);
+        for (int trial = 0; trial < 20; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(30), 1 + random.nextInt(100), random.nextDouble() * 0.05);
+            OffHeapGrid offHeap = OffHeapGrid.of(grid);
+            int n = random.nextInt(8);
+
+            assertEquals(PositiveMask.of(grid).positiveCount(), offHeap.positiveCount(), "trial " + trial);
+            int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+            for (CountingEngine engine : CountingEngine.values()) {
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(offHeap, n, engine), engine + " trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    public void testReadCsv() throws IOException {
+        int[][] grid = randomGrid(new Random(7), 2500, 3, 0.3);
+        StringBuilder csv = new StringBuilder("\n");
+        for (int[] row : grid) {
+            for (int x = 0; x < row.length; x++) csv.append(x == 0 ? "" : ", ").append(row[x]);
+            csv.append('\n');
+        }
+        Path path = Files.createTempFile("offheap", ".csv");
+        try {
+            Files.writeString(path, csv);
+            // 2500 rows grows the first segment from 1024 rows twice
+            assertSameGrid(grid, OffHeapGrid.readCsv(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testMapBinaryGrid() throws IOException {
+        int[][] grid = randomGrid(new Random(8), 40, 70, 0.1);
+        Path path = Files.createTempFile("offheap", BinaryGridFormat.EXTENSION);
+        try {
+            BinaryGridFormat.write(grid, path, BinaryGridFormat.Encoding.INT32);
+            OffHeapGrid mapped = BinaryGridFormat.mapGrid(path);
+
+            assertSameGrid(grid, mapped);
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, 3),
+                    GridCellNeighbors.findTotalCellCountWithinRange(mapped, 3, CountingEngine.DIAMOND_UNION));
+            assertThrows(ReadOnlyBufferException.class, () -> mapped.set(0, 0, 1));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testMapMaskGrid_throwsException() throws IOException {
+        Path path = Files.createTempFile("offheap", BinaryGridFormat.EXTENSION);
+        try {
+            BinaryGridFormat.write(new int[][]{{1, 0}}, path, BinaryGridFormat.Encoding.POSITIVE_MASK);
+            assertThrows(IllegalArgumentException.class, () -> BinaryGridFormat.mapGrid(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testSetUpdatesPositives() {
+        OffHeapGrid grid = OffHeapGrid.allocate(3, 3);
+        assertEquals(-1, grid.nextPositiveRow(0));
+
+        grid.set(2, 1, 5);
+
+        assertEquals(1, grid.positiveCount());
+        assertEquals(2, grid.nextPositiveRow(0));
+        assertEquals(1, grid.nextPositive(2, 0));
+        assertEquals(-1, grid.nextPositive(2, 2));
+    }
+
+    @Test
+    public void testJaggedCsv_throwsException() throws IOException {
+        Path path = Files.createTempFile("offheap", ".csv");
+        try {
+            Files.writeString(path, "1,0\n0");
+            assertThrows(IllegalArgumentException.class, () -> OffHeapGrid.readCsv(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class SegmentedBfsTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 : -random.nextInt(3);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void testSegmentedMaskCountsLikeLegacy() {
+        Random random = new Random(21);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int trial = 0; trial < 60; trial++) {
+                int[][] grid = randomGrid(random, 1 + random.nextInt(25), 1 + random.nextInt(140), random.nextDouble() * 0.1);
+                int n = random.nextInt(15);
+                SegmentedMask mask = SegmentedMask.of(PositiveMask.of(grid));
+
+                long expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(mask, n, CountingEngine.SEGMENTED_BFS), "trial " + trial);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRangeInParallel(mask, n, CountingEngine.SEGMENTED_BFS, pool), "trial " + trial);
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(mask, n, CountingEngine.DIAMOND_UNION), "trial " + trial);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGridBeyondIntIndices() {
+        int rows = 40_000;
+        int cols = 60_000; // 2.4 billion cells
+        SparseGrid sparse = SparseGrid.builder(rows, cols)
+                .add(rows - 3, cols - 5)
+                .add(rows / 2, cols / 2)
+                .build();
+
+        int n = 10;
+        long inside = 2L * n * (n + 1) + 1;
+        long clipped = 0;
+        for (int y = rows - 3 - n; y < rows; y++) {
+            int half = n - Math.abs(y - (rows - 3));
+            clipped += Math.min(cols - 1, cols - 5 + half) - (cols - 5 - half) + 1;
+        }
+
+        assertEquals(inside + clipped, GridCellNeighbors.findTotalCellCountWithinRange(sparse, n, CountingEngine.SEGMENTED_BFS));
+    }
+
+    @Test
+    public void testSegmentedMaskMatchesPositiveMask() throws IOException {
+        int[][] grid = randomGrid(new Random(22), 7, 200, 0.05);
+        PositiveMask expected = PositiveMask.of(grid);
+        SegmentedMask mask = SegmentedMask.of(expected);
+
+        assertEquals(expected.positiveCount(), mask.positiveCount());
+        for (int y = 0; y <= grid.length; y++) {
+            assertEquals(expected.nextPositiveRow(y), mask.nextPositiveRow(y));
+        }
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x <= grid[0].length; x++) {
+                assertEquals(expected.nextPositive(y, x), mask.nextPositive(y, x));
+            }
+        }
+
+        Path binary = Files.createTempFile("segmented-mask", BinaryGridFormat.EXTENSION);
+        try {
+            for (BinaryGridFormat.Encoding encoding : BinaryGridFormat.Encoding.values()) {
+                BinaryGridFormat.write(grid, binary, encoding);
+                assertArrayEquals(expected.words(), PositiveMask.from(BinaryGridFormat.readSegmentedMask(binary)).words(), encoding.name());
+            }
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    public void testOffHeapBitsCountRange() {
+        Random random = new Random(23);
+        long[] words = new long[40];
+        OffHeapBits bits = new OffHeapBits(words.length * 64L);
+        for (int i = 0; i < 500; i++) {
+            int bit = random.nextInt(words.length * 64);
+            words[bit >>> 6] |= 1L << bit;
+            bits.set(bit);
+        }
+
+        for (int trial = 0; trial < 200; trial++) {
+            long from = random.nextInt(words.length * 64);
+            long to = from + random.nextInt((int) (words.length * 64 - from) + 1);
+            assertEquals(Bits.countRange(words, from, to), bits.countRange(from, to));
+        }
+        assertFalse(bits.set(Long.numberOfTrailingZeros(words[0])), "bit was already set");
+    }
+
+    @Test
+    public void testLongQueueAcrossChunks() {
+        LongQueue queue = new LongQueue();
+        long next = 0;
+        long expected = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 300_000; i++) queue.add(next++);
+            for (int i = 0; i < 250_000; i++) assertEquals(expected++, queue.poll());
+        }
+        assertEquals(next - expected, queue.size());
+        while (!queue.isEmpty()) assertEquals(expected++, queue.poll());
+        assertEquals(next, expected);
+    }
+}
@@ -0,0 +1,159 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class SparseGridTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 + random.nextInt(5) : -random.nextInt(5);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void testEnginesCountSparseGridLikeLegacy() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 100; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(70), random.nextDouble() * 0.2);
+            int n = random.nextInt(12);
+            SparseGrid sparse = SparseGrid.of(grid);
+
+            int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, n);
+            for (CountingEngine engine : CountingEngine.values()) {
+                assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRange(sparse, n, engine), engine + " trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelCountOfSparseGrid() {
+        int[][] grid = randomGrid(new Random(12), 90, 70, 0.01);
+        SparseGrid sparse = SparseGrid.of(grid);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int expected = GridCellNeighbors.findTotalCellCountWithinRange(grid, 6);
+            assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRangeInParallel(sparse, 6, CountingEngine.DIAMOND_UNION, pool));
+            assertEquals(expected, GridCellNeighbors.findTotalCellCountWithinRangeInParallel(sparse, 6, CountingEngine.FRONTIER_BFS, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testHugeGridOnlyStoresPositives() {
+        int side = 1_000_000;
+        SparseGrid sparse = SparseGrid.builder(side, side)
+                .add(500_000, 500_000)
+                .add(10, 999_990)
+                .build();
+
+        // The first diamond fits in the grid; the second is clipped by the top and right edges
+        int n = 1_000;
+        long inside = 2L * n * (n + 1) + 1;
+        long clipped = 0;
+        for (int y = 0; y <= 10 + n; y++) {
+            int half = n - Math.abs(y - 10);
+            clipped += Math.min(side - 1, 999_990 + half) - Math.max(0, 999_990 - half) + 1;
+        }
+
+        assertEquals(inside + clipped, GridCellNeighbors.findTotalCellCountWithinRange(sparse, n, CountingEngine.DIAMOND_UNION));
+        assertEquals((long) side * side, GridCellNeighbors.findTotalCellCountWithinRange(sparse, 2 * side, CountingEngine.DIAMOND_UNION));
+
+        Exception e = assertThrows(IllegalArgumentException.class, () ->
+                GridCellNeighbors.findTotalCellCountWithinRange(sparse, n, CountingEngine.DISTANCE_TRANSFORM));
+        assertTrue(e.getMessage().contains("too large for a mask"));
+    }
+
+    @Test
+    public void testDiamondNearMaxColumnDoesNotOverflow() {
+        SparseGrid sparse = SparseGrid.builder(1, Integer.MAX_VALUE)
+                .add(0, Integer.MAX_VALUE - 10)
+                .build();
+
+        // 100 columns to the left, the 9 up to the last column and the positive itself
+        assertEquals(110, GridCellNeighbors.findTotalCellCountWithinRange(sparse, 100, CountingEngine.DIAMOND_UNION));
+        assertEquals(11, GridCellNeighbors.findTotalCellCountWithinRange(SparseGrid.builder(1, Integer.MAX_VALUE).add(0, 0).build(),
+                10, CountingEngine.DIAMOND_UNION));
+    }
+
+    @Test
+    public void testBuilderSortsAndDropsDuplicates() {
+        SparseGrid sparse = SparseGrid.builder(4, 100)
+                .add(3, 70).add(1, 5).add(3, 2).add(1, 5).add(3, 70)
+                .build();
+
+        assertEquals(3, sparse.positiveCount());
+        assertTrue(sparse.isPositive(1, 5));
+        assertTrue(sparse.isPositive(3, 70));
+        assertFalse(sparse.isPositive(2, 5));
+        assertFalse(sparse.isPositive(3, 3));
+
+        assertEquals(1, sparse.nextPositiveRow(0));
+        assertEquals(3, sparse.nextPositiveRow(2));
+        assertEquals(-1, sparse.nextPositiveRow(4));
+        assertEquals(2, sparse.nextPositive(3, 0));
+        assertEquals(70, sparse.nextPositive(3, 3));
+        assertEquals(-1, sparse.nextPositive(3, 71));
+        assertEquals(-1, sparse.nextPositive(0, 0));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> SparseGrid.builder(4, 100).add(4, 0));
+    }
+
+    @Test
+    public void testMaskAndSparseGridAgreeOnPositives() {
+        int[][] grid = randomGrid(new Random(13), 13, 150, 0.05);
+        PositiveMask mask = PositiveMask.of(grid);
+        SparseGrid sparse = SparseGrid.of(mask);
+
+        assertEquals(mask.positiveCount(), sparse.positiveCount());
+        for (int y = 0; y <= grid.length; y++) {
+            assertEquals(mask.nextPositiveRow(y), sparse.nextPositiveRow(y));
+        }
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x <= grid[0].length; x++) {
+                assertEquals(mask.nextPositive(y, x), sparse.nextPositive(y, x));
+            }
+        }
+        assertArrayEquals(mask.words(), PositiveMask.from(sparse).words());
+    }
+
+    @Test
+    public void testLoadersKeepPositivesOnly() throws IOException {
+        Path csv = Files.createTempFile("sparse-grid", ".csv");
+        Path binary = Files.createTempFile("sparse-grid", BinaryGridFormat.EXTENSION);
+        try {
+            Files.writeString(csv, "0, 3, 0\n\n-1, 0, 2\n0, 0, 0\n");
+            SparseGrid fromCsv = SparseGrid.readCsv(csv);
+            assertEquals(3, fromCsv.rows());
+            assertEquals(3, fromCsv.cols());
+            assertEquals(2, fromCsv.positiveCount());
+            assertTrue(fromCsv.isPositive(0, 1));
+            assertTrue(fromCsv.isPositive(1, 2));
+
+            for (BinaryGridFormat.Encoding encoding : BinaryGridFormat.Encoding.values()) {
+                BinaryGridFormat.convertCsv(csv, binary, encoding);
+                SparseGrid fromBinary = BinaryGridFormat.readSparse(binary);
+                assertArrayEquals(PositiveMask.from(fromCsv).words(), PositiveMask.from(fromBinary).words(), encoding.name());
+            }
+
+            Files.writeString(csv, "1,0\n0\n");
+            Exception e = assertThrows(IllegalArgumentException.class, () -> SparseGrid.readCsv(csv));
+            assertEquals("All rows in grid need to have the same length", e.getMessage());
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(binary);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.ga;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingGridCounterTest {
+
+    private static String toCsv(int[][] grid) {
+        StringBuilder csv = new StringBuilder();
+        for (int[] row : grid) {
+            StringJoiner line = new StringJoiner(", ");
+            for (int value : row) line.add(String.valueOf(value));
+            csv.append(line).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static long countStreaming(String csv, int n) throws IOException {
+        return GridCellNeighbors.findTotalCellCountWithinRangeStreaming(new StringReader(csv), n);
+    }
+
+    @Test
+    public void testStreamingMatchesLegacyOnRandomGrids() throws IOException {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 150; trial++) {
+            int height = 1 + random.nextInt(25);
+            int width = 1 + random.nextInt(25);
+            int[][] grid = new int[height][width];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (random.nextInt(20) == 0) grid[y][x] = 1;
+                    else if (random.nextInt(20) == 0) grid[y][x] = -1;
+                }
+            }
+            int n = random.nextInt(height + width);
+
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), countStreaming(toCsv(grid), n),
+                    height + "x" + width + " grid with n=" + n);
+        }
+    }
+
+    @Test
+    public void testStreamingSkipsBlankLinesAndWhitespace() throws IOException {
+        assertEquals(6, countStreaming("\n0, 1, 0\n\n-1, 0 ,2\n 0,0,0\n\n", 1));
+    }
+
+    @Test
+    public void testStreamingHugeDistanceCoversWholeGrid() throws IOException {
+        assertEquals(9, countStreaming("0,0,0\n0,0,0\n0,0,1", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testStreamingUnequalRows_throwsException() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> countStreaming("1,0,0\n0,0", 1));
+        assertTrue(e.getMessage().contains("All rows in grid need to have the same length"));
+    }
+
+    @Test
+    public void testStreamingEmptyGrid_throwsException() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> countStreaming("\n\n", 1));
+        assertTrue(e.getMessage().contains("Expected a grid in csv but found none"));
+    }
+}
@@ -0,0 +1,105 @@
+package org.ga;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+public class VariableRadiusCoverageTest {
+
+    private static int[][] randomGrid(Random random, int height, int width, double positiveChance) {
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < positiveChance ? 1 + random.nextInt(12) : -random.nextInt(5);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Checks every cell against every positive and its radius
+     */
+    private static long bruteForceSum(int[][] grid, IntUnaryOperator radius, int[][] weights) {
+        long total = 0;
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < grid[y].length; x++) {
+                boolean covered = false;
+                for (int py = 0; py < grid.length && !covered; py++) {
+                    for (int px = 0; px < grid[py].length && !covered; px++) {
+                        if (grid[py][px] > 0 && Math.abs(py - y) + Math.abs(px - x) <= radius.applyAsInt(grid[py][px])) covered = true;
+                    }
+                }
+                if (covered) total += weights == null ? 1 : weights[y][x];
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void testRadiusFromValue() {
+        int[][] grid = {
+                {0, 0, 0, 0, 0},
+                {0, 2, 0, 0, 1},
+                {0, 0, 0, 0, 0}
+        };
+
+        // The 2 covers its clipped diamond of radius 2 (11 cells), the 1 adds (1,3) and (2,4)
+        assertEquals(13, GridCellNeighbors.findTotalCellCountWithinRadii(grid, value -> value));
+        // Radius 0 covers only the positives themselves
+        assertEquals(2, GridCellNeighbors.findTotalCellCountWithinRadii(grid, value -> 0));
+    }
+
+    @Test
+    public void testSumOfGridValues() {
+        int[][] grid = {
+                {3, -1, 0},
+                {-4, 1, 0},
+                {0, 0, 5}
+        };
+
+        // Radius 1 from each positive covers everything but (2,0)
+        assertEquals(3 - 1 - 4 + 1 + 5, GridCellNeighbors.findTotalWeightWithinRange(grid, 1, grid));
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomGrids() {
+        Random random = new Random(22);
+        for (int trial = 0; trial < 150; trial++) {
+            int[][] grid = randomGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(40), random.nextDouble() * 0.1);
+            int[][] weights = randomGrid(random, grid.length, grid[0].length, 0.5);
+            IntUnaryOperator radius = value -> value / 2;
+
+            assertEquals(bruteForceSum(grid, radius, null), GridCellNeighbors.findTotalCellCountWithinRadii(grid, radius), "trial " + trial);
+            assertEquals(bruteForceSum(grid, radius, weights), GridCellNeighbors.findTotalWeightWithinRadii(grid, radius, weights), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testConstantRadiusMatchesCount() {
+        int[][] grid = randomGrid(new Random(5), 30, 50, 0.02);
+        for (int n : new int[]{0, 1, 4, 17, 100}) {
+            assertEquals(GridCellNeighbors.findTotalCellCountWithinRange(grid, n), GridCellNeighbors.findTotalCellCountWithinRadii(grid, value -> n), "n " + n);
+        }
+    }
+
+    @Test
+    public void testHugeRadiusCoversEverything() {
+        int[][] grid = new int[10][10];
+        grid[9][9] = 1;
+        assertEquals(100, GridCellNeighbors.findTotalCellCountWithinRadii(grid, value -> Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testNegativeRadius_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findTotalCellCountWithinRadii(new int[][]{{1}}, value -> -1));
+    }
+
+    @Test
+    public void testMismatchedWeights_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findTotalWeightWithinRange(new int[][]{{1, 0}}, 1, new int[][]{{1}}));
+        assertThrows(IllegalArgumentException.class, () -> GridCellNeighbors.findTotalWeightWithinRange(new int[][]{{1}}, 1, new int[][]{{1}, {2}}));
+    }
+}